@@ -0,0 +1,160 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.benchmarks;
+
+import com.aeongames.imgext.components.ImageProcessor;
+import com.aeongames.imgext.components.ProgressObject;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * a clipboard capture from end to end: {@link ImageProcessor#handleFlavor}
+ * with a synthetic {@link Transferable} that holds a PNG as Base64 text. the
+ * score is the time until the outcome of the capture is known. (decoded,
+ * checked and recorded on a temporal folder)
+ * <br>
+ * when repeated the same payload is captured each time. so after the first one
+ * the captures are served by the payload cache. otherwise each capture is a
+ * new image. (its payload is built outside of the measurement)
+ *
+ * @author Eduardo Vindas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandleFlavorBench {
+
+    @Param({"64", "512"})
+    public int side;
+
+    @Param({"true", "false"})
+    public boolean repeated;
+
+    private Path Folder;
+    private ImageProcessor Processor;
+    private DataFlavor Flavor;
+    private Charset Encoding;
+    private byte[] Payload;
+    private int Counter = 0;
+    private final Semaphore Done = new Semaphore(0);
+
+    /**
+     * a clipboard that only holds the payload as text.
+     */
+    private record TextTransferable(DataFlavor flavor, byte[] payload) implements Transferable {
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return new DataFlavor[]{flavor};
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor other) {
+            return flavor.equals(other);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor other) throws UnsupportedFlavorException {
+            if (!isDataFlavorSupported(other)) {
+                throw new UnsupportedFlavorException(other);
+            }
+            return new ByteArrayInputStream(payload);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Folder = Files.createTempDirectory("capture-bench");
+        Processor = new ImageProcessor(new ProgressObject(Folder.resolve("settings.properties")));
+        if (!Processor.updateSafePath(Folder)) {
+            throw new IllegalStateException("Unable to record on " + Folder);
+        }
+        //each capture holds a single image. so a single outcome.
+        Processor.addCaptureListener(result -> Done.release());
+        Flavor = Processor.mySupportedFlavor()[0];
+        Encoding = Charset.forName(Flavor.getParameter("charset"));
+        Payload = payload(Counter);
+    }
+
+    @Setup(Level.Invocation)
+    public void next() throws IOException {
+        if (!repeated) {
+            Payload = payload(++Counter);
+        }
+    }
+
+    /**
+     * @return a PNG (a gradient that depends on the seed) as Base64 text.
+     */
+    private byte[] payload(int seed) throws IOException {
+        var image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                image.setRGB(x, y, (x * 255 / side) << 16 | (y * 255 / side) << 8 | (seed & 0xFF));
+            }
+        }
+        //so no 2 seeds make the same image.
+        image.setRGB(0, 0, seed);
+        var png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return Base64.getEncoder().encodeToString(png.toByteArray()).getBytes(Encoding);
+    }
+
+    @Benchmark
+    public boolean capture() throws Exception {
+        var queued = Processor.handleFlavor(Flavor, () -> false, new TextTransferable(Flavor, Payload));
+        if (queued) {
+            Done.acquire();
+        }
+        return queued;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Processor.shutdown();
+        try (var files = Files.walk(Folder)) {
+            for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/* 
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *  
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ * 
+ */
+package com.aeongames.edi.benchmarks;
+
+import com.aeongames.edi.utils.common.CharsetCompatibilityChecker;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * the previous implementation of
+ * {@link com.aeongames.edi.utils.common.SkipInputStream} (a new buffer per
+ * read and a skip per byte) kept as the baseline for
+ * {@link SkipInputStreamBench}.
+ * <br>
+ * a class that defines a Input stream that skip a certain amount of bytes when
+ * reading from it. this is useful so for example we read data that is formatted
+ * in UTF 16 or UTF 32 and we want to read them AS IF it were ANSI or UTF-8.
+ * thus we "skip" part of the bytes from the stream
+ *
+ * @author Eduardo Vindas
+ */
+class LegacySkipInputStream extends InputStream {
+
+    /**
+     * the character set to assume we will be working with.
+     */
+    private final transient Charset DataCharset;
+    /**
+     * order of bytes
+     */
+    private final transient boolean isbigEdian;
+    /**
+     * bytes per character
+     */
+    private final transient int BytesperData;
+    /**
+     * the underline stream to handle.
+     */
+    private final InputStream wrappedstream;
+
+    LegacySkipInputStream(InputStream IS, Charset charset) {
+        wrappedstream = IS;
+        BytesperData = (int) Math.floor(charset.newEncoder().averageBytesPerChar());
+        DataCharset = charset;
+        isbigEdian = CharsetCompatibilityChecker.RemoveBOM(DataCharset, String.valueOf('A').getBytes(charset));
+    }
+
+    @Override
+    public int read() throws IOException {
+        // the minimal read we do is 1 byte.
+        // but to do so we need to read BytesperData
+        // to gather it.
+        // to gather the byte we desire we need to either read the first one
+        // or read the last one (due Edianess)
+        // to do so efficiently we read a single byte or skipping and then reading
+        if (isbigEdian) {
+            wrappedstream.skip(BytesperData - 1);
+        }
+        var data = wrappedstream.read();
+        if (!isbigEdian) {
+            wrappedstream.skip(BytesperData - 1);
+        }
+        return data;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return wrappedstream.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        wrappedstream.close();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return wrappedstream.markSupported();
+    }
+
+    /**
+     * fails due this class is not to be cloned.
+     *
+     * @return nothing
+     * @throws CloneNotSupportedException always as this class is not allowed to
+     * be cloned.
+     */
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        throw new CloneNotSupportedException("not allowed");
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        wrappedstream.mark(readlimit);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        wrappedstream.reset();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        byte Buffer[] = new byte[len * BytesperData];
+        var results = wrappedstream.read(Buffer);
+        if (results == -1) {
+            return results;
+        }
+        //complete the last character if the read stopped in the middle of it.
+        while (results % BytesperData != 0) {
+            var more = wrappedstream.read(Buffer, results, BytesperData - results % BytesperData);
+            if (more == -1) {
+                break;
+            }
+            results += more;
+        }
+        var start = off;
+        for (int index = 0; index + BytesperData <= results; index += BytesperData) {
+            var offset = isbigEdian ? BytesperData - 1 : 0;
+            b[off++] = Buffer[index + offset];
+        }
+        //report the bytes we provided. not the bytes we read.
+        return off - start;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return wrappedstream.skip(BytesperData * n);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.benchmarks;
+
+import com.aeongames.edi.utils.pojo.FastPropertyPojo;
+import com.aeongames.edi.utils.pojo.ListenableProperty;
+import com.aeongames.edi.utils.pojo.PropertyPojo;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PropertyPojo} (synchronized) against {@link FastPropertyPojo} (read
+ * write locks) under contention. a few writers update the property (as the
+ * capture threads do) while more readers read it (as the UI does). each
+ * update notifies a listener.
+ *
+ * @author Eduardo Vindas
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyPojoBench {
+
+    @Param({"synchronized", "fast"})
+    public String kind;
+
+    private ListenableProperty<Integer> Property;
+    private int Next;
+
+    @Setup
+    public void setup() {
+        Property = kind.equals("fast") ? new FastPropertyPojo<>(0) : new PropertyPojo<>(0);
+        Property.addPropertyListener((source, newValue) -> {
+        });
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void write() {
+        Property.setValue(Next++);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(6)
+    public Integer read() {
+        return Property.getValue();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.benchmarks;
+
+import com.aeongames.edi.utils.common.Base64DecodingInputStream;
+import com.aeongames.edi.utils.common.SkipInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * narrows Base64 text (encoded on each charset) with {@link SkipInputStream}
+ * and decodes it with {@link Base64DecodingInputStream}. each one against the
+ * previous implementation. ({@link LegacySkipInputStream} and the JDK decoder
+ * over it) the score is the time per payload. the size is the amount of
+ * Base64 characters.
+ * <br>
+ * the SIMD decoder requires the vector module on the forks:
+ * {@code -Djmh.args="-jvmArgsAppend --add-modules=jdk.incubator.vector"}
+ *
+ * @author Eduardo Vindas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkipInputStreamBench {
+
+    @Param({"UTF-8", "UTF-16LE", "UTF-16BE", "UTF-32LE"})
+    public String charset;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private Charset Encoding;
+    private byte[] Encoded;
+
+    @Setup
+    public void setup() {
+        Encoding = Charset.forName(charset);
+        //3 bytes make 4 characters.
+        var payload = new byte[size / 4 * 3];
+        new Random(42).nextBytes(payload);
+        var text = new String(Base64.getEncoder().encode(payload), StandardCharsets.US_ASCII);
+        Encoded = text.getBytes(Encoding);
+    }
+
+    @Benchmark
+    public long narrow() throws IOException {
+        try (var stream = new SkipInputStream(new ByteArrayInputStream(Encoded), Encoding)) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long narrowLegacy() throws IOException {
+        try (var stream = new LegacySkipInputStream(new ByteArrayInputStream(Encoded), Encoding)) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        try (var stream = Base64DecodingInputStream.wrap(new ByteArrayInputStream(Encoded), Encoding)) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long decodeLegacy() throws IOException {
+        try (var stream = Base64.getDecoder().wrap(new LegacySkipInputStream(new ByteArrayInputStream(Encoded), Encoding))) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * a Base64 (basic alphabet. RFC 4648) decoder stream that decodes the data on
+ * blocks instead of one character at the time. (as
+ * {@link java.util.Base64.Decoder#wrap(InputStream)} does)
+ * <br>
+ * the characters are read in bulk from the source into a block. the block is
+ * decoded with a SIMD kernel ({@link VectorBase64}) when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} and the CPU has vectors of at
+ * least 128 bits. otherwise (or for the rest of the block that the kernel did
+ * not decode) a scalar table decoder is used. the kernel can be disabled with
+ * {@code -Dcom.aeongames.base64.scalar=true}
+ * <br>
+ * the stream behaves like the JDK decoder: the padding is optional, the data
+ * ends at the padding, and any character outside the alphabet is a error.
+ * <br>
+ * this class is NOT Sync. it is intended to be used by a single thread.
+ *
+ * @author Eduardo Vindas
+ */
+public final class Base64DecodingInputStream extends InputStream {
+
+    /**
+     * the amount of characters decoded per block. (a multiple of 4 and of the
+     * vector lanes)
+     */
+    private static final int BLOCK_CHARS = 64 * 1024;
+    /**
+     * whenever or not the SIMD kernel is used.
+     */
+    private static final boolean VECTORIZED = !Boolean.getBoolean("com.aeongames.base64.scalar")
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorBase64.isSupported();
+    /**
+     * the extra bytes the kernel might write after the decoded data.
+     */
+    private static final int SLACK = VECTORIZED ? VectorBase64.lanes() : 0;
+    private static final int PADDING = -2;
+    /**
+     * the 6 bit value of each character. -1 if not part of the alphabet.
+     */
+    private static final byte[] VALUES = new byte[256];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+        VALUES['='] = PADDING;
+    }
+
+    private final InputStream Source;
+    private final byte[] Chars = new byte[BLOCK_CHARS];
+    private final byte[] Decoded = new byte[BLOCK_CHARS / 4 * 3 + SLACK];
+    /**
+     * the amount of characters on the block that are not decoded yet.
+     */
+    private int Pending = 0;
+    private int Position = 0, Limit = 0;
+    /**
+     * set once the source ended or the padding was found.
+     */
+    private boolean Ended = false;
+    private boolean Closed = false;
+    private final byte[] SingleByte = new byte[1];
+
+    /**
+     * creates a new decoder stream.
+     *
+     * @param source the stream that provides the Base64 characters. (one byte
+     * per character)
+     */
+    public Base64DecodingInputStream(InputStream source) {
+        Source = Objects.requireNonNull(source, "the source cannot be null");
+    }
+
+    /**
+     * wraps a stream of text on the provided charset. the wide charsets are
+     * narrowed with a {@link SkipInputStream} first.
+     *
+     * @param source the stream with the Base64 text.
+     * @param charset the charset of the text.
+     * @return the stream that provides the decoded data.
+     */
+    public static Base64DecodingInputStream wrap(InputStream source, Charset charset) {
+        return new Base64DecodingInputStream(new SkipInputStream(source, charset));
+    }
+
+    /**
+     * @return true if the blocks are decoded with the SIMD kernel.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var read = read(SingleByte, 0, 1);
+        return read == -1 ? -1 : SingleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (Position == Limit && !fill()) {
+            return -1;
+        }
+        var count = Math.min(len, Limit - Position);
+        System.arraycopy(Decoded, Position, b, off, count);
+        Position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        long skipped = 0;
+        while (skipped < n && (Position < Limit || fill())) {
+            var count = (int) Math.min(n - skipped, Limit - Position);
+            Position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return Limit - Position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!Closed) {
+            Closed = true;
+            Source.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (Closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * reads and decodes the next block.
+     *
+     * @return true if there is decoded data. false if the data ended.
+     */
+    private boolean fill() throws IOException {
+        Position = Limit = 0;
+        while (Limit == 0 && !Ended) {
+            var read = Source.read(Chars, Pending, Chars.length - Pending);
+            if (read == -1) {
+                Ended = true;
+                decodeTail();
+                break;
+            }
+            Pending += read;
+            var quads = Pending & ~3;
+            if (quads > 0) {
+                decodeBlock(quads);
+            }
+        }
+        return Limit > 0;
+    }
+
+    /**
+     * decodes the first {@code length} (a multiple of 4) characters of the
+     * block. the characters that are left are moved to the start.
+     */
+    private void decodeBlock(int length) throws IOException {
+        int read = 0;
+        if (VECTORIZED) {
+            read = VectorBase64.decode(Chars, 0, length, Decoded, 0);
+            Limit = read / 4 * 3;
+        }
+        for (; read < length; read += 4) {
+            int first = VALUES[Chars[read] & 0xFF], second = VALUES[Chars[read + 1] & 0xFF],
+                    third = VALUES[Chars[read + 2] & 0xFF], fourth = VALUES[Chars[read + 3] & 0xFF];
+            if ((first | second | third | fourth) < 0) {
+                //not a plain quantum. the padding or a illegal character.
+                decodeFinal(read, 4);
+                return;
+            }
+            var bits = first << 18 | second << 12 | third << 6 | fourth;
+            Decoded[Limit++] = (byte) (bits >> 16);
+            Decoded[Limit++] = (byte) (bits >> 8);
+            Decoded[Limit++] = (byte) bits;
+        }
+        Pending -= length;
+        System.arraycopy(Chars, length, Chars, 0, Pending);
+    }
+
+    /**
+     * decodes the characters left once the source ended.
+     */
+    private void decodeTail() throws IOException {
+        if (Pending > 0) {
+            decodeFinal(0, Pending);
+        }
+    }
+
+    /**
+     * decodes the last (up to 4) characters of the data. they might have
+     * padding or be incomplete (without padding) after this the data ends.
+     */
+    private void decodeFinal(int offset, int length) throws IOException {
+        int bits = 0, count = 0;
+        for (int i = 0; i < length; i++) {
+            var character = Chars[offset + i] & 0xFF;
+            var value = VALUES[character];
+            if (value == PADDING) {
+                //the padding must complete the quantum. "xx==" or "xxx="
+                if (count < 2 || (count == 2 && (i + 1 >= length || VALUES[Chars[offset + i + 1] & 0xFF] != PADDING))) {
+                    throw new IOException("Invalid Base64 padding at quantum with " + count + " characters");
+                }
+                break;
+            }
+            if (value < 0) {
+                throw new IOException(String.format("Illegal Base64 character %x", character));
+            }
+            bits = bits << 6 | value;
+            count++;
+        }
+        Ended = true;
+        Pending = 0;
+        switch (count) {
+            case 0 -> {
+            }
+            case 1 ->
+                throw new IOException("Invalid Base64 ending: a single character on the last quantum");
+            case 2 ->
+                Decoded[Limit++] = (byte) (bits >> 4);
+            case 3 -> {
+                Decoded[Limit++] = (byte) (bits >> 10);
+                Decoded[Limit++] = (byte) (bits >> 2);
+            }
+            default -> {
+                Decoded[Limit++] = (byte) (bits >> 16);
+                Decoded[Limit++] = (byte) (bits >> 8);
+                Decoded[Limit++] = (byte) bits;
+            }
+        }
+    }
+}
@@ -206,12 +206,21 @@ public final class CharsetCompatibilityChecker {
      * the character 'A' is represented as 0x0041 on UTF-16, which is also the same
      *  UTF-32 the character 'A' is represented as 0x00000041 vs
      *
+     * the result is cached per character set. see {@link CharsetProfile}
+     *
      * @param charset the character set to check for congruency with Base64 And
      * ASCII
      * @return true if the characters that are used in Base64 can be encoded
      * congruently
      */
     public static boolean charsetCompatibleWithBase64(Charset charset) {
+        return CharsetProfile.of(charset).base64Compatible();
+    }
+
+    /**
+     * the uncached check of {@link #charsetCompatibleWithBase64(Charset)}
+     */
+    static boolean isBase64Compatible(Charset charset) {
         return isAsciiNumericCompatible(charset, toBase64Map);
     }
 
@@ -0,0 +1,97 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * the (immutable) description of how a charset encodes the Base64 text. it is
+ * computed once per charset and kept on a concurrent cache. so we don't have
+ * to build encoders and encode the Base64 alphabet on each clipboard event.
+ *
+ * @author Eduardo Vindas
+ * @param charset the charset described.
+ * @param base64Compatible true if the Base64 characters have the same numeric
+ * value as on ASCII. see
+ * {@link CharsetCompatibilityChecker#isAsciiNumericCompatible}
+ * @param stride the amount of bytes per character.
+ * @param bigEndian true if the significant byte is the last one of each
+ * character.
+ * @param bomLength the amount of bytes of the Byte Order Mark the encoder
+ * writes at the start of the text. (0 if none)
+ */
+public record CharsetProfile(Charset charset, boolean base64Compatible, int stride,
+        boolean bigEndian, int bomLength) {
+
+    /**
+     * the charsets the clipboard usually provides the text with.
+     */
+    private static final Charset[] COMMON_CHARSETS = {
+        StandardCharsets.UTF_8,
+        StandardCharsets.UTF_16,
+        StandardCharsets.UTF_16LE,
+        StandardCharsets.UTF_16BE,
+        StandardCharsets.ISO_8859_1,
+        StandardCharsets.US_ASCII
+    };
+    private static final ConcurrentHashMap<Charset, CharsetProfile> PROFILES = new ConcurrentHashMap<>();
+
+    /**
+     * provides the profile of the charset. computed on the first call for
+     * each charset.
+     *
+     * @param charset the charset
+     * @return the profile of the charset.
+     */
+    public static CharsetProfile of(Charset charset) {
+        Objects.requireNonNull(charset, "the charset cannot be null");
+        var profile = PROFILES.get(charset);
+        return profile != null ? profile : PROFILES.computeIfAbsent(charset, CharsetProfile::compute);
+    }
+
+    /**
+     * computes the profiles of the common clipboard charsets (and the default
+     * charset) so the first capture does not have to.
+     */
+    public static void prewarm() {
+        for (var charset : COMMON_CHARSETS) {
+            of(charset);
+        }
+        of(Charset.defaultCharset());
+        for (var name : new String[]{"UTF-32", "UTF-32LE", "UTF-32BE"}) {
+            if (Charset.isSupported(name)) {
+                of(Charset.forName(name));
+            }
+        }
+    }
+
+    private static CharsetProfile compute(Charset charset) {
+        var stride = Math.max(1, (int) Math.floor(charset.newEncoder().averageBytesPerChar()));
+        var encoded = String.valueOf('A').getBytes(charset);
+        var bomLength = Math.max(0, encoded.length - stride);
+        var bigEndian = CharsetCompatibilityChecker.RemoveBOM(charset, encoded);
+        return new CharsetProfile(charset, CharsetCompatibilityChecker.isBase64Compatible(charset),
+                stride, bigEndian, bomLength);
+    }
+
+    /**
+     * @return the position (within a character) of the byte that holds the
+     * ASCII value.
+     */
+    public int significantByte() {
+        return bigEndian ? stride - 1 : 0;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * scans a stream of text (one byte per character. ASCII compatible. see
+ * {@link SkipInputStream} for wider charsets) for every
+ * {@code data:image/<type>;base64,} URI on it. no matter where it is. (HTML,
+ * Markdown, JSON, CSS...)
+ * <br>
+ * the scan is done on a single pass with a small rolling buffer. each URI is
+ * provided as it is found ({@link #next()}) and its Base64 data is read
+ * directly from the source through {@link DataUri#getPayload()}. thus the
+ * memory used does not depend on the size of the text or the images.
+ * <br>
+ * this class is NOT Sync. it is intended to be used by a single thread.
+ *
+ * @author Eduardo Vindas
+ */
+public final class DataUriScanner {
+
+    private static final byte[] PREFIX = "data:image".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_MARKER = ";base64".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * the maximum length of the "type;params;base64" part of the header.
+     */
+    private static final int MAX_HEADER = 96;
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * the Base64 alphabet (and the padding)
+     */
+    private static final boolean[] BASE64 = new boolean[256];
+
+    static {
+        for (var c : "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=".toCharArray()) {
+            BASE64[c] = true;
+        }
+    }
+
+    /**
+     * a data URI found on the text.
+     */
+    public final class DataUri {
+
+        private final String MediaType;
+        private final long Offset;
+        private final InputStream Payload = new PayloadStream();
+        private boolean Ended = false;
+        private boolean Padding = false;
+
+        private DataUri(String mediaType, long offset) {
+            MediaType = mediaType;
+            Offset = offset;
+        }
+
+        /**
+         * @return the media type of the URI. for example "image/png"
+         */
+        public String getMediaType() {
+            return MediaType;
+        }
+
+        /**
+         * @return the image type. for example "png"
+         */
+        public String getImageType() {
+            return MediaType.substring(MediaType.indexOf('/') + 1);
+        }
+
+        /**
+         * @return the position on the text where the URI starts.
+         */
+        public long getOffset() {
+            return Offset;
+        }
+
+        /**
+         * provides the Base64 data of the URI. the stream ends at the first
+         * character that is not part of the Base64 alphabet. (usually a quote
+         * or a parenthesis) the line breaks (and the JSON escaped ones) are
+         * skipped, as the data might be wrapped on lines. (MIME style) closing
+         * this stream does not close the source.
+         *
+         * @return the stream that provides the Base64 (ASCII) data.
+         */
+        public InputStream getPayload() {
+            return Payload;
+        }
+
+        /**
+         * @return the next byte of the payload or -1 if the payload ended.
+         */
+        private int nextPayloadByte() throws IOException {
+            while (true) {
+                if (Ended || !ensure(1)) {
+                    Ended = true;
+                    return -1;
+                }
+                var value = Buffer[Position] & 0xFF;
+                if (value == '\r' || value == '\n') {
+                    //the data is wrapped on lines.
+                    Position++;
+                    continue;
+                }
+                if (value == '\\' && ensure(2)) {
+                    var escaped = Buffer[Position + 1];
+                    if (escaped == '/') {
+                        //JSON escapes the slash as "\/"
+                        Position += 2;
+                        return '/';
+                    }
+                    if (escaped == 'r' || escaped == 'n') {
+                        //a line break escaped on JSON.
+                        Position += 2;
+                        continue;
+                    }
+                }
+                if (!BASE64[value] || (Padding && value != '=')) {
+                    Ended = true;
+                    return -1;
+                }
+                Padding = value == '=';
+                Position++;
+                return value;
+            }
+        }
+
+        private final class PayloadStream extends InputStream {
+
+            @Override
+            public int read() throws IOException {
+                return nextPayloadByte();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                if (len == 0) {
+                    return 0;
+                }
+                int count = 0;
+                while (count < len) {
+                    //copy the plain Base64 bytes straight from the buffer.
+                    while (count < len && Position < Limit && !Padding) {
+                        var value = Buffer[Position] & 0xFF;
+                        if (!BASE64[value] || value == '=') {
+                            break;
+                        }
+                        b[off + count++] = (byte) value;
+                        Position++;
+                    }
+                    if (count == len) {
+                        break;
+                    }
+                    var value = nextPayloadByte();
+                    if (value == -1) {
+                        break;
+                    }
+                    b[off + count++] = (byte) value;
+                }
+                return count == 0 ? -1 : count;
+            }
+
+            @Override
+            public void close() {
+                //the source belongs to the scanner.
+            }
+        }
+    }
+
+    private final InputStream Source;
+    private final byte[] Buffer = new byte[BUFFER_SIZE];
+    private int Position = 0, Limit = 0;
+    /**
+     * the amount of bytes that were discarded from the buffer.
+     */
+    private long Discarded = 0;
+    private boolean SourceEnded = false;
+    private DataUri Current;
+    private int Found = 0;
+    /**
+     * where the image type starts on the last header matched.
+     */
+    private int TypeStart;
+
+    /**
+     * creates a new scanner. the source is not closed by this class.
+     *
+     * @param source the stream to scan.
+     */
+    public DataUriScanner(InputStream source) {
+        Source = Objects.requireNonNull(source, "the source cannot be null");
+    }
+
+    /**
+     * finds the next data URI. the remaining payload of the previous URI (if
+     * any) is skipped.
+     *
+     * @return the next URI or null if the text ended.
+     * @throws IOException if unable to read the source.
+     */
+    public DataUri next() throws IOException {
+        if (Objects.nonNull(Current)) {
+            Current.Payload.transferTo(OutputStream.nullOutputStream());
+            Current = null;
+        }
+        while (ensure(1)) {
+            while (Position < Limit && (Buffer[Position] | 0x20) != 'd') {
+                Position++;
+            }
+            if (Position == Limit) {
+                continue;
+            }
+            ensure(PREFIX.length + 2 + MAX_HEADER + 1);
+            var headerEnd = matchHeader();
+            if (headerEnd < 0) {
+                Position++;
+                continue;
+            }
+            var offset = Discarded + Position;
+            var mediaType = new String(Buffer, TypeStart, headerEnd - TypeStart, StandardCharsets.US_ASCII);
+            mediaType = "image/" + mediaType.substring(0, mediaType.indexOf(';')).toLowerCase();
+            Position = headerEnd + 1;
+            Found++;
+            Current = new DataUri(mediaType, offset);
+            return Current;
+        }
+        return null;
+    }
+
+    /**
+     * @return the amount of URIs found so far.
+     */
+    public int getFound() {
+        return Found;
+    }
+
+    /**
+     * checks if the buffer holds a data URI header at the current position.
+     *
+     * @return the position of the ',' that ends the header or -1 if not a
+     * valid header.
+     */
+    private int matchHeader() {
+        if (Limit - Position < PREFIX.length + BASE64_MARKER.length + 2) {
+            return -1;
+        }
+        for (int i = 0; i < PREFIX.length; i++) {
+            if (lower(Buffer[Position + i]) != PREFIX[i]) {
+                return -1;
+            }
+        }
+        //the slash is escaped as "\/" on JSON
+        var slash = Position + PREFIX.length;
+        if (Buffer[slash] == '/') {
+            TypeStart = slash + 1;
+        } else if (Buffer[slash] == '\\' && Buffer[slash + 1] == '/') {
+            TypeStart = slash + 2;
+        } else {
+            return -1;
+        }
+        var end = Math.min(Limit, TypeStart + MAX_HEADER + 1);
+        for (int i = TypeStart; i < end; i++) {
+            var value = Buffer[i];
+            if (value == ',') {
+                return endsWithMarker(i) ? i : -1;
+            }
+            if (value <= ' ' || value == '"' || value == '\'' || value == '(' || value == ')' || value == '<' || value == '>') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean endsWithMarker(int comma) {
+        var start = comma - BASE64_MARKER.length;
+        if (start <= TypeStart) {
+            return false;
+        }
+        for (int i = 0; i < BASE64_MARKER.length; i++) {
+            if (lower(Buffer[start + i]) != BASE64_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte lower(byte value) {
+        return value >= 'A' && value <= 'Z' ? (byte) (value | 0x20) : value;
+    }
+
+    /**
+     * ensures the buffer holds at least the requested amount of bytes after
+     * the current position. (unless the source ended)
+     *
+     * @return true if the buffer holds the requested amount of bytes.
+     */
+    private boolean ensure(int needed) throws IOException {
+        if (Limit - Position >= needed) {
+            return true;
+        }
+        if (SourceEnded) {
+            return false;
+        }
+        //move the remaining bytes to the start and fill the rest.
+        var remaining = Limit - Position;
+        System.arraycopy(Buffer, Position, Buffer, 0, remaining);
+        Discarded += Position;
+        Position = 0;
+        Limit = remaining;
+        while (Limit < needed) {
+            var read = Source.read(Buffer, Limit, Buffer.length - Limit);
+            if (read == -1) {
+                SourceEnded = true;
+                break;
+            }
+            Limit += read;
+        }
+        return Limit - Position >= needed;
+    }
+}
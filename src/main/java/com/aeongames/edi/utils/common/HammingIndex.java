@@ -0,0 +1,296 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * a multi index hash table of 64 bit keys that finds the keys within a
+ * Hamming distance (amount of different bits) of a query without comparing
+ * against every key.
+ * <br>
+ * each key is split into 8 blocks of 8 bits and each block is indexed on its
+ * own table. if 2 keys are within a distance D then (by the pigeonhole
+ * principle) at least one of their blocks is within a distance of D/8. so we
+ * only need to compare the query against the keys that share a block "close
+ * enough" to the query. for thresholds below 8 that means a exact block match.
+ * the result is exact, not a approximation.
+ * <br>
+ * this class is Sync with a {@link ReentrantReadWriteLock}. searches can run
+ * in parallel. inserts are exclusive.
+ *
+ * @author Eduardo Vindas
+ * @param <V> the type of the values associated to each key.
+ */
+public final class HammingIndex<V> {
+
+    /**
+     * a match of a search.
+     *
+     * @param <V> the type of the value
+     * @param key the key that matched
+     * @param value the value associated to the key
+     * @param distance the distance between the key and the query.
+     */
+    public record Match<V>(long key, V value, int distance) {
+
+    }
+
+    private static final int BLOCKS = 8;
+    private static final int BLOCK_BITS = Long.SIZE / BLOCKS;
+    private static final int BUCKETS = 1 << BLOCK_BITS;
+    /**
+     * for each radius. all the block masks that flip up to that many bits.
+     */
+    private static final int[][] MASKS_WITHIN = new int[BLOCK_BITS + 1][];
+
+    static {
+        for (int radius = 0; radius <= BLOCK_BITS; radius++) {
+            int count = 0;
+            var masks = new int[BUCKETS];
+            for (int mask = 0; mask < BUCKETS; mask++) {
+                if (Integer.bitCount(mask) <= radius) {
+                    masks[count++] = mask;
+                }
+            }
+            MASKS_WITHIN[radius] = Arrays.copyOf(masks, count);
+        }
+    }
+
+    private final ReentrantReadWriteLock IndexLock = new ReentrantReadWriteLock();
+    private long[] Keys = new long[64];
+    private Object[] Values = new Object[64];
+    private int Size;
+    /**
+     * per block and block value. the positions of the keys that have that
+     * value on that block.
+     */
+    private final int[][][] Buckets = new int[BLOCKS][BUCKETS][];
+    private final int[][] BucketSizes = new int[BLOCKS][BUCKETS];
+
+    private static int blockOf(long key, int block) {
+        return (int) (key >>> (block * BLOCK_BITS)) & (BUCKETS - 1);
+    }
+
+    /**
+     * adds the key into the index. if the key is already present the value is
+     * NOT replaced.
+     *
+     * @param key the key to add
+     * @param value the value associated to the key.
+     * @return true if added. false if the key was already present.
+     */
+    public boolean add(long key, V value) {
+        IndexLock.writeLock().lock();
+        try {
+            if (nearest(key, 0) >= 0) {
+                return false;
+            }
+            insert(key, value);
+            return true;
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * finds the closest key to the query within the max distance. if there
+     * is none the query is added. both as a single step. so of 2 similar keys
+     * added at the same time only one is added.
+     *
+     * @param key the query (and the key to add)
+     * @param maxDistance the maximum distance (inclusive) to accept.
+     * @param value the value associated to the key.
+     * @return the closest match or null if no key was within the distance
+     * (and thus the key was added)
+     */
+    @SuppressWarnings("unchecked")
+    public Match<V> findNearestOrAdd(long key, int maxDistance, V value) {
+        IndexLock.writeLock().lock();
+        try {
+            var position = nearest(key, Math.min(maxDistance, Long.SIZE));
+            if (position >= 0) {
+                return new Match<>(Keys[position], (V) Values[position], Long.bitCount(Keys[position] ^ key));
+            }
+            if (nearest(key, 0) < 0) {
+                insert(key, value);
+            }
+            return null;
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * removes the key. only if it is still associated to the value.
+     *
+     * @param key the key to remove.
+     * @param value the value the key must have.
+     * @return true if removed.
+     */
+    public boolean remove(long key, V value) {
+        IndexLock.writeLock().lock();
+        try {
+            var position = nearest(key, 0);
+            if (position < 0 || !Objects.equals(Values[position], value)) {
+                return false;
+            }
+            unlink(position);
+            var last = --Size;
+            if (position != last) {
+                //the last key takes the free position.
+                unlink(last);
+                Keys[position] = Keys[last];
+                Values[position] = Values[last];
+                link(position);
+            }
+            Values[last] = null;
+            return true;
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    private void insert(long key, V value) {
+        if (Size == Keys.length) {
+            Keys = Arrays.copyOf(Keys, Size * 2);
+            Values = Arrays.copyOf(Values, Size * 2);
+        }
+        var position = Size++;
+        Keys[position] = key;
+        Values[position] = value;
+        link(position);
+    }
+
+    /**
+     * adds the position into the bucket of each block of its key.
+     */
+    private void link(int position) {
+        var key = Keys[position];
+        for (int block = 0; block < BLOCKS; block++) {
+            var bucketId = blockOf(key, block);
+            var bucket = Buckets[block][bucketId];
+            var bucketSize = BucketSizes[block][bucketId];
+            if (bucket == null) {
+                bucket = Buckets[block][bucketId] = new int[4];
+            } else if (bucketSize == bucket.length) {
+                bucket = Buckets[block][bucketId] = Arrays.copyOf(bucket, bucketSize * 2);
+            }
+            bucket[bucketSize] = position;
+            BucketSizes[block][bucketId] = bucketSize + 1;
+        }
+    }
+
+    /**
+     * removes the position from the bucket of each block of its key.
+     */
+    private void unlink(int position) {
+        var key = Keys[position];
+        for (int block = 0; block < BLOCKS; block++) {
+            var bucketId = blockOf(key, block);
+            var bucket = Buckets[block][bucketId];
+            var bucketSize = BucketSizes[block][bucketId];
+            for (int i = 0; i < bucketSize; i++) {
+                if (bucket[i] == position) {
+                    bucket[i] = bucket[bucketSize - 1];
+                    BucketSizes[block][bucketId] = bucketSize - 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * finds the closest key to the query within the max distance.
+     *
+     * @param key the query
+     * @param maxDistance the maximum distance (inclusive) to accept.
+     * @return the closest match or null if no key is within the distance.
+     */
+    @SuppressWarnings("unchecked")
+    public Match<V> findNearest(long key, int maxDistance) {
+        IndexLock.readLock().lock();
+        try {
+            var position = nearest(key, Math.min(maxDistance, Long.SIZE));
+            if (position < 0) {
+                return null;
+            }
+            return new Match<>(Keys[position], (V) Values[position], Long.bitCount(Keys[position] ^ key));
+        } finally {
+            IndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the position of the closest key within the distance or -1
+     */
+    private int nearest(long key, int maxDistance) {
+        if (Size == 0 || maxDistance < 0) {
+            return -1;
+        }
+        int best = -1;
+        int bestDistance = maxDistance + 1;
+        var masks = MASKS_WITHIN[maxDistance / BLOCKS];
+        for (int block = 0; block < BLOCKS; block++) {
+            var value = blockOf(key, block);
+            for (var mask : masks) {
+                var bucketId = value ^ mask;
+                var bucket = Buckets[block][bucketId];
+                var bucketSize = BucketSizes[block][bucketId];
+                for (int i = 0; i < bucketSize; i++) {
+                    var distance = Long.bitCount(Keys[bucket[i]] ^ key);
+                    if (distance < bestDistance) {
+                        best = bucket[i];
+                        bestDistance = distance;
+                        if (distance == 0) {
+                            return best;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the amount of keys on the index.
+     */
+    public int size() {
+        IndexLock.readLock().lock();
+        try {
+            return Size;
+        } finally {
+            IndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * removes all the keys.
+     */
+    public void clear() {
+        IndexLock.writeLock().lock();
+        try {
+            Keys = new long[64];
+            Values = new Object[64];
+            Size = 0;
+            for (int block = 0; block < BLOCKS; block++) {
+                Arrays.fill(Buckets[block], null);
+                Arrays.fill(BucketSizes[block], 0);
+            }
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * a bounded log of lines. once full each new line evicts the oldest one. so
+ * the memory used does not grow with the amount of lines logged.
+ * <br>
+ * the lines are numbered (a sequence) as they are appended. a reader keeps
+ * the sequence of the next line it wants and reads from there. if the reader
+ * was too slow and the lines were evicted it resumes at the oldest line still
+ * held.
+ * <br>
+ * appending does not lock. each writer claims a sequence and publishes its
+ * line into the slot of the sequence.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+public final class LogRing {
+
+    /**
+     * a line and its sequence. so a reader can tell a slot that holds a older
+     * (or not yet published) line.
+     */
+    private record Entry(long sequence, String line) {
+
+    }
+
+    private final AtomicReferenceArray<Entry> Slots;
+    private final int Capacity;
+    /**
+     * the sequence of the next line to append.
+     */
+    private final AtomicLong Head = new AtomicLong();
+
+    /**
+     * @param capacity the maximum amount of lines held.
+     */
+    public LogRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the capacity must be at least 1");
+        }
+        Capacity = capacity;
+        Slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * appends the line. evicts the oldest line if the log is full.
+     *
+     * @param line the line.
+     */
+    public void append(String line) {
+        Objects.requireNonNull(line, "the line cannot be null");
+        var sequence = Head.getAndIncrement();
+        Slots.set((int) (sequence % Capacity), new Entry(sequence, line));
+    }
+
+    /**
+     * @return the maximum amount of lines held.
+     */
+    public int getCapacity() {
+        return Capacity;
+    }
+
+    /**
+     * @return the sequence the next line will get.
+     */
+    public long getHead() {
+        return Head.get();
+    }
+
+    /**
+     * reads the lines from the provided sequence. stops at the first line
+     * that is not published yet. (a writer claimed the sequence but did not
+     * store its line yet)
+     *
+     * @param from the sequence of the first line wanted. if already evicted
+     * the read starts at the oldest line held.
+     * @param reader receives each line.
+     * @return the sequence of the next line to read.
+     */
+    public long read(long from, Consumer<String> reader) {
+        var head = Head.get();
+        var sequence = Math.max(from, head - Capacity);
+        for (; sequence < head; sequence++) {
+            var entry = Slots.get((int) (sequence % Capacity));
+            if (Objects.isNull(entry) || entry.sequence() < sequence) {
+                //not published yet.
+                break;
+            }
+            if (entry.sequence() > sequence) {
+                //overwritten while we read. skip to the oldest still held.
+                sequence = Math.max(sequence, Head.get() - Capacity) - 1;
+                continue;
+            }
+            reader.accept(entry.line());
+        }
+        return sequence;
+    }
+}
@@ -17,7 +17,6 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
-import java.util.Base64;
 import java.util.Objects;
 
 /**
@@ -25,11 +24,20 @@ import java.util.Objects;
  * reading from it. this is useful so for example we read data that is formatted
  * in UTF 16 or UTF 32 and we want to read them AS IF it were ANSI or UTF-8.
  * thus we "skip" part of the bytes from the stream
+ * <br>
+ * the wide characters are read in bulk into a scratch buffer that is reused
+ * on each read. and narrowed into the caller buffer. characters that are split
+ * between 2 reads of the underline stream are kept until completed. for single
+ * byte charsets the calls are passed to the underline stream as they are.
  *
  * @author Eduardo Vindas
  */
 public class SkipInputStream extends InputStream {
 
+    /**
+     * the amount of characters the scratch buffer holds.
+     */
+    private static final int SCRATCH_CHARS = 8192;
     /**
      * the character set to assume we will be working with.
      */
@@ -42,10 +50,24 @@ public class SkipInputStream extends InputStream {
      * bytes per character
      */
     private final transient int BytesperData;
+    /**
+     * the position (within a character) of the byte we keep.
+     */
+    private final transient int SignificantByte;
     /**
      * the underline stream to handle.
      */
     private final InputStream wrappedstream;
+    /**
+     * where the wide characters are read into. null for single byte charsets.
+     */
+    private final byte[] Scratch;
+    /**
+     * the bytes of a incomplete character that are kept at the start of the
+     * scratch buffer.
+     */
+    private int Pending = 0;
+    private final byte[] SingleByte = new byte[1];
 
     /**
      * a static function that can be called to Wrap on several other input streams
@@ -58,8 +80,7 @@ public class SkipInputStream extends InputStream {
      * @return DigestInputStream that wraps a base64Stream that wraps the SkipInputStream that wraps the toWrap stream
      */
     public static final DigestInputStream getWrappedStream(InputStream toWrap, Charset charEncoding, MessageDigest diggester) {
-        var base64Decoded = Base64.getDecoder()
-                .wrap(new SkipInputStream(toWrap, charEncoding));
+        var base64Decoded = new Base64DecodingInputStream(new SkipInputStream(toWrap, charEncoding));
         //diggester.reset();//the caller need to ensure this 
         DigestInputStream digestStream = new DigestInputStream(base64Decoded, diggester);
         //digestStream.on(true);//the caller need to ensure this 
@@ -68,32 +89,29 @@ public class SkipInputStream extends InputStream {
 
     public SkipInputStream(InputStream IS, Charset charset) {
         wrappedstream = IS;
-        BytesperData = (int) Math.floor(charset.newEncoder().averageBytesPerChar());
+        var profile = CharsetProfile.of(charset);
+        BytesperData = profile.stride();
         DataCharset = charset;
-        isbigEdian = CharsetCompatibilityChecker.RemoveBOM(DataCharset, String.valueOf('A').getBytes(charset));
+        isbigEdian = profile.bigEndian();
+        SignificantByte = profile.significantByte();
+        Scratch = BytesperData > 1 ? new byte[SCRATCH_CHARS * BytesperData] : null;
     }
 
     @Override
     public int read() throws IOException {
-        // the minimal read we do is 1 byte.
-        // but to do so we need to read BytesperData
-        // to gather it.
-        // to gather the byte we desire we need to either read the first one
-        // or read the last one (due Edianess)
-        // to do so efficiently we read a single byte or skipping and then reading
-        if (isbigEdian) {
-            wrappedstream.skip(BytesperData - 1);
-        }
-        var data = wrappedstream.read();
-        if (!isbigEdian) {
-            wrappedstream.skip(BytesperData - 1);
+        if (Scratch == null) {
+            return wrappedstream.read();
         }
-        return data;
+        var read = read(SingleByte, 0, 1);
+        return read == -1 ? -1 : SingleByte[0] & 0xFF;
     }
 
     @Override
     public int available() throws IOException {
-        return wrappedstream.available();
+        if (Scratch == null) {
+            return wrappedstream.available();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, ((long) wrappedstream.available() + Pending) / BytesperData);
     }
 
     @Override
@@ -101,9 +119,14 @@ public class SkipInputStream extends InputStream {
         wrappedstream.close();
     }
 
+    /**
+     * mark is not supported. as part of a character might be on our buffer.
+     *
+     * @return false
+     */
     @Override
     public boolean markSupported() {
-        return wrappedstream.markSupported();
+        return false;
     }
 
     /**
@@ -120,31 +143,61 @@ public class SkipInputStream extends InputStream {
 
     @Override
     public void mark(int readlimit) {
-        wrappedstream.mark(readlimit);
     }
 
     @Override
     public void reset() throws IOException {
-        wrappedstream.reset();
+        throw new IOException("mark/reset not supported");
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         Objects.checkFromIndexSize(off, len, b.length);
-        byte Buffer[] = new byte[len * BytesperData];
-        var results = wrappedstream.read(Buffer);
-        if (results == -1) {
-            return results;
+        if (len == 0) {
+            return 0;
         }
-        for (int index = 0; index < results; index += BytesperData) {
-            var offset = isbigEdian ? BytesperData - 1 : 0;
-            b[off++] = Buffer[index + offset];
+        if (Scratch == null) {
+            return wrappedstream.read(b, off, len);
         }
-        return results;
+        var wanted = Math.min(len, SCRATCH_CHARS) * BytesperData;
+        var filled = Pending;
+        // a single read of the underline stream. unless we need more bytes to
+        // complete a character.
+        do {
+            var read = wrappedstream.read(Scratch, filled, wanted - filled);
+            if (read == -1) {
+                //a incomplete character at the end of the data is dropped.
+                Pending = 0;
+                return -1;
+            }
+            filled += read;
+        } while (filled < BytesperData);
+        var characters = filled / BytesperData;
+        for (int index = 0, source = SignificantByte; index < characters; index++, source += BytesperData) {
+            b[off + index] = Scratch[source];
+        }
+        Pending = filled - characters * BytesperData;
+        if (Pending > 0) {
+            System.arraycopy(Scratch, characters * BytesperData, Scratch, 0, Pending);
+        }
+        return characters;
     }
 
     @Override
     public long skip(long n) throws IOException {
-        return wrappedstream.skip(BytesperData * n);
+        if (Scratch == null) {
+            return wrappedstream.skip(n);
+        }
+        long skipped = 0;
+        while (skipped < n) {
+            // narrowing into the scratch buffer itself is safe. each byte is
+            // written on a position that was already read.
+            var read = read(Scratch, 0, (int) Math.min(n - skipped, SCRATCH_CHARS));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
     }
 }
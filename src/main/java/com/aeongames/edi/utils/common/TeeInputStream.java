@@ -0,0 +1,149 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * a Input stream that copies every byte that is read from the wrapped stream
+ * into a sink {@link OutputStream}. this allow us to "pass through" the data
+ * that is being consumed by someone else (for example a image reader) and
+ * record it at the same time without a second read or a re-encode.
+ * <br>
+ * NOTE: the sink only gets what is READ. bytes that are skipped are still read
+ * (and thus copied) so the sink holds a exact copy of the consumed data. mark
+ * and reset are NOT supported as it would duplicate data into the sink.
+ *
+ * @author Eduardo Vindas
+ */
+public class TeeInputStream extends FilterInputStream {
+
+    /**
+     * the stream that receives a copy of all the data read.
+     */
+    private final OutputStream Sink;
+    /**
+     * the amount of bytes that have been copied into the sink.
+     */
+    private long BytesCopied = 0;
+
+    /**
+     * creates a new TeeInputStream
+     *
+     * @param source the stream to read from
+     * @param sink the stream that will receive a copy of the read data.
+     */
+    public TeeInputStream(InputStream source, OutputStream sink) {
+        super(Objects.requireNonNull(source, "the source stream cannot be null"));
+        Sink = Objects.requireNonNull(sink, "the sink stream cannot be null");
+    }
+
+    @Override
+    public int read() throws IOException {
+        var data = super.read();
+        if (data != -1) {
+            Sink.write(data);
+            BytesCopied++;
+        }
+        return data;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        var read = super.read(b, off, len);
+        if (read > 0) {
+            Sink.write(b, off, read);
+            BytesCopied += read;
+        }
+        return read;
+    }
+
+    /**
+     * skips are done by reading the data. so it can be copied into the sink.
+     *
+     * @param n the amount of bytes to skip
+     * @return the amount of bytes skipped.
+     * @throws IOException if a error happens when reading or writing the data
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long remaining = n;
+        while (remaining > 0) {
+            var read = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        //not supported. see class doc.
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * reads whatever remains on the wrapped stream until its end, copying it
+     * into the sink. useful when the consumer of this stream stop reading
+     * before the end of the data (for example image readers stop at the end
+     * of image marker) but we still want the complete data on the sink.
+     *
+     * @return the amount of bytes that were drained.
+     * @throws IOException if a error happens when reading or writing the data
+     */
+    public long drain() throws IOException {
+        long drained = 0;
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = read(buffer, 0, buffer.length)) != -1) {
+            drained += read;
+        }
+        return drained;
+    }
+
+    /**
+     * @return the amount of bytes that have been copied into the sink so far.
+     */
+    public long getBytesCopied() {
+        return BytesCopied;
+    }
+
+    /**
+     * flushes the sink. but does NOT close it. closing the sink is
+     * responsibility of the caller. closing this stream closes the source.
+     *
+     * @throws IOException if the sink fails to flush.
+     */
+    public void flushSink() throws IOException {
+        Sink.flush();
+    }
+}
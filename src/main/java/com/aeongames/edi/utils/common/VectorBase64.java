@@ -0,0 +1,132 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * the SIMD kernel of {@link Base64DecodingInputStream}. decodes a full vector
+ * of Base64 characters per step: the characters are validated and translated
+ * into their 6 bit values with range compares. then each group of 4 values is
+ * joined into 24 bits on int lanes and the 3 bytes of each lane are packed
+ * together with a shuffle.
+ * <br>
+ * this class uses the incubator module {@code jdk.incubator.vector}. the
+ * caller must check the module is present before touching this class.
+ * otherwise the class cannot be initialized.
+ *
+ * @author Eduardo Vindas
+ */
+final class VectorBase64 {
+
+    /**
+     * the species MUST be a constant. otherwise the JIT does not replace the
+     * vector operations with the CPU instructions (and they become VERY slow)
+     */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    /**
+     * the amount of bytes each vector decodes into.
+     */
+    private static final int DECODED = LANES / 4 * 3;
+    /**
+     * moves the 3 bytes (big endian) of each int lane together. the lanes
+     * after {@link #DECODED} are garbage.
+     */
+    private static final VectorShuffle<Byte> PACK;
+
+    static {
+        var order = new int[LANES];
+        for (int i = 0; i < DECODED; i++) {
+            order[i] = 4 * (i / 3) + 2 - (i % 3);
+        }
+        PACK = VectorShuffle.fromArray(SPECIES, order, 0);
+    }
+
+    private VectorBase64() {
+    }
+
+    /**
+     * @return true if the CPU has vectors wide enough for the kernel. on
+     * smaller shapes the vector API runs on plain java and is slower than the
+     * scalar decoder. the packing also assumes little endian lanes.
+     */
+    static boolean isSupported() {
+        return SPECIES.vectorBitSize() >= 128 && ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * @return the amount of characters that are read per step.
+     */
+    static int lanes() {
+        return LANES;
+    }
+
+    /**
+     * decodes as many full vectors of characters as possible. the decode stops
+     * at the first vector that has a character that is not on the Base64
+     * alphabet (for example the padding) so the caller can handle the rest.
+     * NOTE: each step writes {@link #lanes()} bytes on the destination.
+     * thus the destination needs {@code lanes() / 4} bytes of slack after the
+     * decoded data.
+     *
+     * @param src the Base64 characters.
+     * @param offset where the characters start.
+     * @param length the amount of characters available.
+     * @param dst where to write the decoded bytes.
+     * @param dstOffset where to start writing.
+     * @return the amount of characters decoded. (a multiple of
+     * {@link #lanes()}) each 4 characters produce 3 bytes.
+     */
+    static int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int read = 0;
+        int written = dstOffset;
+        while (read + LANES <= length && written + LANES <= dst.length) {
+            var chars = ByteVector.fromArray(SPECIES, src, offset + read);
+            VectorMask<Byte> upper = chars.compare(VectorOperators.GE, (byte) 'A')
+                    .and(chars.compare(VectorOperators.LE, (byte) 'Z'));
+            VectorMask<Byte> lower = chars.compare(VectorOperators.GE, (byte) 'a')
+                    .and(chars.compare(VectorOperators.LE, (byte) 'z'));
+            VectorMask<Byte> digit = chars.compare(VectorOperators.GE, (byte) '0')
+                    .and(chars.compare(VectorOperators.LE, (byte) '9'));
+            VectorMask<Byte> plus = chars.compare(VectorOperators.EQ, (byte) '+');
+            VectorMask<Byte> slash = chars.compare(VectorOperators.EQ, (byte) '/');
+            if (!upper.or(lower).or(digit).or(plus).or(slash).allTrue()) {
+                break;
+            }
+            //the amount to add to each character to get its 6 bit value.
+            var shift = ByteVector.zero(SPECIES)
+                    .blend((byte) -'A', upper)
+                    .blend((byte) (26 - 'a'), lower)
+                    .blend((byte) (52 - '0'), digit)
+                    .blend((byte) (62 - '+'), plus)
+                    .blend((byte) (63 - '/'), slash);
+            IntVector quads = chars.add(shift).reinterpretAsInts();
+            //the first character is on the lowest byte (little endian lanes)
+            var joined = quads.and(0x3F).lanewise(VectorOperators.LSHL, 18)
+                    .or(quads.lanewise(VectorOperators.LSHR, 8).and(0x3F).lanewise(VectorOperators.LSHL, 12))
+                    .or(quads.lanewise(VectorOperators.LSHR, 16).and(0x3F).lanewise(VectorOperators.LSHL, 6))
+                    .or(quads.lanewise(VectorOperators.LSHR, 24).and(0x3F));
+            joined.reinterpretAsBytes().rearrange(PACK).intoArray(dst, written);
+            read += LANES;
+            written += DECODED;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.common;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.zip.Checksum;
+
+/**
+ * a streaming implementation of the 64 bit xxHash (XXH64) on plain java. it is
+ * a non cryptographic hash that runs several times faster than SHA-256 and is
+ * good enough to tell apart data that is different. (but NOT to proof two
+ * pieces of data are the same. for that use a cryptographic hash)
+ * <br>
+ * implements {@link Checksum} so it can be used with
+ * {@link java.util.zip.CheckedInputStream}. the output matches the reference
+ * implementation. it also keeps the amount of bytes hashed. see
+ * {@link #getLength()}
+ * <br>
+ * this class is NOT Sync.
+ *
+ * @author Eduardo Vindas
+ */
+public final class XxHash64 implements Checksum {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    /**
+     * the amount of bytes consumed by each step of the 4 accumulators.
+     */
+    private static final int STRIPE = 32;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long Seed;
+    private long V1, V2, V3, V4;
+    private long Length;
+    /**
+     * the bytes that do not complete a stripe yet.
+     */
+    private final byte[] Buffer = new byte[STRIPE];
+    private int Buffered;
+
+    /**
+     * creates a new hasher with seed 0.
+     */
+    public XxHash64() {
+        this(0);
+    }
+
+    /**
+     * creates a new hasher.
+     *
+     * @param seed the seed of the hash.
+     */
+    public XxHash64(long seed) {
+        Seed = seed;
+        reset();
+    }
+
+    /**
+     * hashes the provided data in one go.
+     *
+     * @param data the data to hash
+     * @param offset where the data starts
+     * @param length the amount of bytes to hash
+     * @return the hash of the data (seed 0)
+     */
+    public static long hash(byte[] data, int offset, int length) {
+        var hasher = new XxHash64();
+        hasher.update(data, offset, length);
+        return hasher.getValue();
+    }
+
+    @Override
+    public void reset() {
+        V1 = Seed + PRIME1 + PRIME2;
+        V2 = Seed + PRIME2;
+        V3 = Seed;
+        V4 = Seed - PRIME1;
+        Length = 0;
+        Buffered = 0;
+    }
+
+    @Override
+    public void update(int b) {
+        Buffer[Buffered++] = (byte) b;
+        Length++;
+        if (Buffered == STRIPE) {
+            stripe(Buffer, 0);
+            Buffered = 0;
+        }
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        Length += len;
+        if (Buffered > 0) {
+            var fill = Math.min(len, STRIPE - Buffered);
+            System.arraycopy(b, off, Buffer, Buffered, fill);
+            Buffered += fill;
+            off += fill;
+            len -= fill;
+            if (Buffered < STRIPE) {
+                return;
+            }
+            stripe(Buffer, 0);
+            Buffered = 0;
+        }
+        var end = off + len - STRIPE;
+        for (; off <= end; off += STRIPE) {
+            stripe(b, off);
+        }
+        len = end + STRIPE - off;
+        System.arraycopy(b, off, Buffer, 0, len);
+        Buffered = len;
+    }
+
+    /**
+     * hashes the remaining bytes of the buffer. direct (and memory mapped)
+     * buffers are read in place.
+     *
+     * @param buffer the data to hash.
+     */
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        var data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        var length = data.remaining();
+        int position = 0;
+        while (Buffered > 0 && position < length) {
+            update(data.get(position++));
+        }
+        buffer.position(buffer.limit());
+        if (Buffered > 0) {
+            return;
+        }
+        Length += length - position;
+        for (; position + STRIPE <= length; position += STRIPE) {
+            V1 = round(V1, data.getLong(position));
+            V2 = round(V2, data.getLong(position + 8));
+            V3 = round(V3, data.getLong(position + 16));
+            V4 = round(V4, data.getLong(position + 24));
+        }
+        Buffered = length - position;
+        data.get(position, Buffer, 0, Buffered);
+    }
+
+    /**
+     * @return the hash of the data provided so far. does NOT reset the
+     * hasher.
+     */
+    @Override
+    public long getValue() {
+        long hash;
+        if (Length >= STRIPE) {
+            hash = Long.rotateLeft(V1, 1) + Long.rotateLeft(V2, 7) + Long.rotateLeft(V3, 12) + Long.rotateLeft(V4, 18);
+            hash = merge(hash, V1);
+            hash = merge(hash, V2);
+            hash = merge(hash, V3);
+            hash = merge(hash, V4);
+        } else {
+            hash = Seed + PRIME5;
+        }
+        hash += Length;
+        int position = 0;
+        for (; position + Long.BYTES <= Buffered; position += Long.BYTES) {
+            hash ^= round(0, (long) LONGS.get(Buffer, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (position + Integer.BYTES <= Buffered) {
+            hash ^= ((int) INTS.get(Buffer, position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += Integer.BYTES;
+        }
+        for (; position < Buffered; position++) {
+            hash ^= (Buffer[position] & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * @return the amount of bytes hashed since the last reset.
+     */
+    public long getLength() {
+        return Length;
+    }
+
+    private void stripe(byte[] data, int offset) {
+        V1 = round(V1, (long) LONGS.get(data, offset));
+        V2 = round(V2, (long) LONGS.get(data, offset + 8));
+        V3 = round(V3, (long) LONGS.get(data, offset + 16));
+        V4 = round(V4, (long) LONGS.get(data, offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long merge(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * PRIME1 + PRIME4;
+    }
+}
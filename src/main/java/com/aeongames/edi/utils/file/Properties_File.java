@@ -13,14 +13,21 @@ package com.aeongames.edi.utils.file;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,6 +54,11 @@ public final class Properties_File {
     //<editor-fold defaultstate="collapsed" desc="Static And Constants">
     public enum Response {
         SAVED,
+        /**
+         * the changes will be recorded by the background flusher. see
+         * {@link #setWriteBehind(long)}
+         */
+        SCHEDULED,
         NOREQUIRED,
         ERROR,
         FILENOTSET;
@@ -63,6 +75,11 @@ public final class Properties_File {
      * Current Instance Counter
      */
     private static int Runtime_Counter = 0;
+    /**
+     * records the changes of the instances on write behind mode. shared by all
+     * the instances. (it only sleeps most of the time)
+     */
+    private static ScheduledExecutorService Flusher;
     //</editor-fold>
 
     //<editor-fold defaultstate="collapsed" desc="constant Properties">
@@ -95,6 +112,38 @@ public final class Properties_File {
      * as XML
      */
     private boolean ReadedFromXML = false;
+    /**
+     * how long (in milliseconds) the changes wait before they are recorded.
+     * 0 if the changes are recorded when requested.
+     */
+    private long WriteBehindDelay = 0;
+    /**
+     * whenever or not a flush is scheduled.
+     */
+    private boolean FlushScheduled = false;
+    /**
+     * is told about each write of the file. null if none.
+     */
+    private volatile WriteObserver Observer = null;
+    /**
+     * the version of the last snapshot taken to be written. guarded by this.
+     */
+    private long SnapshotVersion = 0;
+    /**
+     * serializes the writes. the snapshots are taken under this (so the
+     * callers do not wait for the disk) thus a older snapshot might reach
+     * the disk after a newer one. the version and the file of the last
+     * snapshot written are kept so the older ones are dropped. guarded by
+     * WriteLock.
+     */
+    private final Object WriteLock = new Object();
+    /**
+     * the amount of snapshots taken by {@link #flush()} that are not written
+     * yet. guarded by this.
+     */
+    private int PendingWrites = 0;
+    private long WrittenVersion = 0;
+    private Path WrittenFile = null;
 
     /**
      * a list of files loaded on this Property object
@@ -284,9 +333,12 @@ public final class Properties_File {
      */
     public synchronized Response SaveIfNeeded() {
         if (Dirty) {
+            if (SaveLocation != null && WriteBehindDelay > 0) {
+                scheduleFlush();
+                return Response.SCHEDULED;
+            }
             if (SaveLocation != null) {
-                return save(SaveLocation, String.format("Changes Last Made: %s",
-                        DATE_FORMAT.format(Calendar.getInstance().getTime())),
+                return save(SaveLocation, String.format("Changes Last Made: %s", formatNow()),
                         ReadedFromXML) ? Response.SAVED : Response.ERROR;
             } else {
                 return Response.FILENOTSET;
@@ -316,19 +368,223 @@ public final class Properties_File {
         if (Files.exists(file, LinkOption.NOFOLLOW_LINKS) && !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
             throw new IllegalArgumentException("the path defines a folder or a non Regular file");
         }
-        
-        try (var out = Files.newOutputStream(file)) {
-            if (!XML) {
-                configFile.store(out, HeaderInfo);
-            } else {
-                configFile.storeToXML(out, HeaderInfo);
-            }
+        if (orderedWrite(++SnapshotVersion, configFile, file, HeaderInfo, XML)) {
             Dirty = false;
             return true;
+        }
+        return false;
+    }
+
+    /**
+     * is told when the file is written. both calls are made on the thread
+     * that writes the file.
+     */
+    public interface WriteObserver {
+
+        /**
+         * called right before the file is written.
+         *
+         * @return any state the observer needs. provided back to
+         * {@link #written(Object, long)}
+         */
+        Object writing();
+
+        /**
+         * called once the file is written. (or failed to)
+         *
+         * @param state what {@link #writing()} returned.
+         * @param nanos how long (in nanoseconds) the write took.
+         */
+        void written(Object state, long nanos);
+    }
+
+    /**
+     * sets who is told about each write of the file.
+     *
+     * @param observer the observer. null to remove it.
+     */
+    public void setWriteObserver(WriteObserver observer) {
+        Observer = observer;
+    }
+
+    /**
+     * writes the snapshot unless a newer one was already written into the
+     * file.
+     *
+     * @param version the version of the snapshot. taken under this.
+     */
+    private boolean orderedWrite(long version, java.util.Properties properties, Path file, String HeaderInfo, boolean XML) {
+        synchronized (WriteLock) {
+            if (file.equals(WrittenFile) && version < WrittenVersion) {
+                //the file already holds a newer state.
+                return true;
+            }
+            if (!timedWrite(properties, file, HeaderInfo, XML)) {
+                return false;
+            }
+            WrittenFile = file;
+            WrittenVersion = version;
+            return true;
+        }
+    }
+
+    private boolean timedWrite(java.util.Properties properties, Path file, String HeaderInfo, boolean XML) {
+        var observer = Observer;
+        if (observer == null) {
+            return write(properties, file, HeaderInfo, XML);
+        }
+        var state = observer.writing();
+        var start = System.nanoTime();
+        var written = write(properties, file, HeaderInfo, XML);
+        observer.written(state, System.nanoTime() - start);
+        return written;
+    }
+
+    /**
+     * records the properties into a temporal file next to the file and then
+     * replaces the file with it. so the file is never left half written.
+     */
+    private static boolean write(java.util.Properties properties, Path file, String HeaderInfo, boolean XML) {
+        Path temp = null;
+        try {
+            var folder = file.toAbsolutePath().getParent();
+            //not a createTempFile. that one is owner only (on POSIX) and the file keeps it once in place.
+            do {
+                temp = folder.resolve(file.getFileName().toString()
+                        + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            } while (!createIfAbsent(temp));
+            try (var out = Files.newOutputStream(temp)) {
+                if (!XML) {
+                    properties.store(out, HeaderInfo);
+                } else {
+                    properties.storeToXML(out, HeaderInfo);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
         } catch (IOException | NullPointerException ex) {
+            Logger.getLogger(Properties_File.class.getName()).log(Level.WARNING, "Unable to record " + file, ex);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException err) {
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the file was created. false if it already exists.
+     */
+    private static boolean createIfAbsent(Path file) throws IOException {
+        try {
+            Files.createFile(file);
+            return true;
+        } catch (FileAlreadyExistsException ex) {
             return false;
         }
+    }
 
+    /**
+     * sets the write behind mode. on this mode {@link #SaveIfNeeded()} does
+     * not record the changes. it schedules a background flush after the delay
+     * and returns. all the changes made meanwhile are recorded by that single
+     * flush.
+     *
+     * @param delayMillis how long (in milliseconds) the changes wait before
+     * they are recorded. 0 disables the mode and records any pending change.
+     */
+    public void setWriteBehind(long delayMillis) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("the delay cannot be negative");
+        }
+        synchronized (this) {
+            WriteBehindDelay = delayMillis;
+        }
+        if (delayMillis == 0) {
+            flush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (FlushScheduled) {
+            return;
+        }
+        FlushScheduled = true;
+        getFlusher().schedule(this::flush, WriteBehindDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getFlusher() {
+        if (Flusher == null) {
+            Flusher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("Properties-Flusher").factory());
+        }
+        return Flusher;
+    }
+
+    /**
+     * records the pending changes (if any) now. the properties are copied
+     * while locked and recorded outside the lock. so the callers that change
+     * the properties meanwhile do not wait for the disk. the writes are
+     * ordered by the copies: a copy older than the one already recorded is
+     * dropped. if there is nothing new but another flush is still writing its
+     * copy this waits for it. so once this returns the changes are on disk.
+     *
+     * @return whenever or not the changes were recorded.
+     */
+    public Response flush() {
+        java.util.Properties copy;
+        Path file;
+        boolean xml;
+        long version;
+        synchronized (this) {
+            FlushScheduled = false;
+            try {
+                while (!Dirty && PendingWrites > 0) {
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return Response.ERROR;
+            }
+            if (!Dirty) {
+                return Response.NOREQUIRED;
+            }
+            if (SaveLocation == null) {
+                return Response.FILENOTSET;
+            }
+            copy = (java.util.Properties) configFile.clone();
+            file = SaveLocation;
+            xml = ReadedFromXML;
+            version = ++SnapshotVersion;
+            Dirty = false;
+            PendingWrites++;
+        }
+        var header = String.format("Changes Last Made: %s", formatNow());
+        var written = orderedWrite(version, copy, file, header, xml);
+        synchronized (this) {
+            PendingWrites--;
+            if (!written) {
+                //try again later.
+                Dirty = true;
+                if (WriteBehindDelay > 0) {
+                    scheduleFlush();
+                }
+            }
+            notifyAll();
+        }
+        return written ? Response.SAVED : Response.ERROR;
+    }
+
+    private static String formatNow() {
+        synchronized (DATE_FORMAT) {
+            return DATE_FORMAT.format(Calendar.getInstance().getTime());
+        }
     }
 
     /**
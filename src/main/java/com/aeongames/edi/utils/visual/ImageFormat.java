@@ -0,0 +1,110 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.visual;
+
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+
+/**
+ * the image formats we can tell apart by the first bytes of the data. (the
+ * "magic" signature of the format) this lets us reject data that is not a
+ * image (or a image we cannot read) without asking each ImageIO reader if it
+ * can decode it.
+ *
+ * @author Eduardo Vindas
+ */
+public enum ImageFormat {
+    PNG("png"),
+    JPEG("jpeg"),
+    GIF("gif"),
+    BMP("bmp"),
+    WEBP("webp"),
+    TIFF("tiff");
+
+    /**
+     * the amount of bytes {@link #sniff(byte[], int)} needs to tell any of the
+     * formats apart.
+     */
+    public static final int SIGNATURE_LENGTH = 12;
+    private static final ImageFormat[] VALUES = values();
+    private final String FormatName;
+
+    private ImageFormat(String formatName) {
+        FormatName = formatName;
+    }
+
+    /**
+     * @return the ImageIO name of the format.
+     */
+    public String getFormatName() {
+        return FormatName;
+    }
+
+    /**
+     * creates a new reader for the format.
+     *
+     * @return a new reader. or null if there is no reader (plugin) for the
+     * format.
+     */
+    public ImageReader createReader() {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(FormatName);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    /**
+     * @return the amount of formats.
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * determines the format of the data from its first bytes.
+     *
+     * @param head the first bytes of the data.
+     * @param length the amount of valid bytes on head.
+     * @return the format or null if the bytes do not match any format.
+     */
+    public static ImageFormat sniff(byte[] head, int length) {
+        if (length >= 8 && matches(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (length >= 3 && matches(head, 0, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (length >= 6 && (matches(head, 0, 'G', 'I', 'F', '8', '7', 'a')
+                || matches(head, 0, 'G', 'I', 'F', '8', '9', 'a'))) {
+            return GIF;
+        }
+        if (length >= 2 && matches(head, 0, 'B', 'M')) {
+            return BMP;
+        }
+        if (length >= 12 && matches(head, 0, 'R', 'I', 'F', 'F') && matches(head, 8, 'W', 'E', 'B', 'P')) {
+            return WEBP;
+        }
+        if (length >= 4 && (matches(head, 0, 'I', 'I', 0x2A, 0x00) || matches(head, 0, 'M', 'M', 0x00, 0x2A))) {
+            return TIFF;
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] data, int offset, int... signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if ((data[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.visual;
+
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+
+/**
+ * calculates perceptual hashes of images. unlike a cryptographic hash two
+ * images that look the same (re-encoded, slightly scaled or saved with a
+ * different JPEG quality) produce hashes that differ on a few bits only. thus
+ * the similarity of 2 images can be measured as the Hamming distance of their
+ * hashes.
+ *
+ * @author Eduardo Vindas
+ */
+public final class PerceptualHash {
+
+    /**
+     * the grid the image is reduced to. one extra column as each bit compares
+     * a cell with its neighbor to the right.
+     */
+    private static final int GRID_W = 9, GRID_H = 8;
+    /**
+     * the maximum samples (per axis) we take per cell to average it. this
+     * bounds the work on huge images while still smoothing out noise.
+     */
+    private static final int SAMPLES_PER_CELL = 16;
+    /**
+     * the smallest size (per axis) that still provides every sample the hash
+     * takes.
+     */
+    private static final int MIN_WIDTH = GRID_W * SAMPLES_PER_CELL, MIN_HEIGHT = GRID_H * SAMPLES_PER_CELL;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * calculates the difference hash (dHash) of the image. the image is
+     * reduced to a 9x8 grayscale grid (each cell is the average luminance of
+     * its area) and each bit tells whenever a cell is brighter than the cell
+     * to its right.
+     *
+     * @param image the image to hash
+     * @return the 64 bit hash of the image.
+     */
+    public static long dHash(BufferedImage image) {
+        Objects.requireNonNull(image, "the image cannot be null");
+        var grid = grayscaleGrid(image);
+        long hash = 0;
+        for (int y = 0; y < GRID_H; y++) {
+            for (int x = 0; x < GRID_W - 1; x++) {
+                hash <<= 1;
+                if (grid[y * GRID_W + x] > grid[y * GRID_W + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * determines how much a image can be subsampled when is decoded (see
+     * {@link javax.imageio.ImageReadParam#setSourceSubsampling}) and still
+     * provide every sample the hash takes. so the hash of a huge image does not
+     * need its full raster.
+     *
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @return the subsampling period for both axis. (1 if the image is small)
+     */
+    public static int subsamplingFor(int width, int height) {
+        return Math.max(1, Math.min(width / MIN_WIDTH, height / MIN_HEIGHT));
+    }
+
+    /**
+     * @param first a hash
+     * @param second another hash
+     * @return the amount of bits that differ between the 2 hashes. (0 to 64)
+     */
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    /**
+     * reduces the image into the grid by averaging a evenly spread sample of
+     * each cell.
+     */
+    private static double[] grayscaleGrid(BufferedImage image) {
+        final int width = image.getWidth(), height = image.getHeight();
+        var grid = new double[GRID_W * GRID_H];
+        for (int cy = 0; cy < GRID_H; cy++) {
+            int y0 = cy * height / GRID_H, y1 = Math.max(y0 + 1, (cy + 1) * height / GRID_H);
+            int stepY = Math.max(1, (y1 - y0) / SAMPLES_PER_CELL);
+            for (int cx = 0; cx < GRID_W; cx++) {
+                int x0 = cx * width / GRID_W, x1 = Math.max(x0 + 1, (cx + 1) * width / GRID_W);
+                int stepX = Math.max(1, (x1 - x0) / SAMPLES_PER_CELL);
+                double sum = 0;
+                int samples = 0;
+                for (int y = y0; y < y1 && y < height; y += stepY) {
+                    for (int x = x0; x < x1 && x < width; x += stepX) {
+                        sum += luminance(image.getRGB(x, y));
+                        samples++;
+                    }
+                }
+                grid[cy * GRID_W + cx] = samples == 0 ? 0 : sum / samples;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * the luminance (Rec. 601) of the pixel. transparent pixels are blended
+     * against white so a transparent background and a white one look alike.
+     */
+    private static double luminance(int argb) {
+        double alpha = ((argb >>> 24) & 0xFF) / 255d;
+        double r = ((argb >> 16) & 0xFF) * alpha + 255 * (1 - alpha);
+        double g = ((argb >> 8) & 0xFF) * alpha + 255 * (1 - alpha);
+        double b = (argb & 0xFF) * alpha + 255 * (1 - alpha);
+        return 0.299 * r + 0.587 * g + 0.114 * b;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.edi.utils.visual.pojouilink;
+
+import com.aeongames.edi.utils.common.LogRing;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import javax.swing.Timer;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.JTextComponent;
+
+/**
+ * shows a {@link LogRing} on a text component. unlike
+ * {@link JtextComponentAppendUpdateBind} the writers never touch Swing: they
+ * append into the log and a timer on the EDT applies the new lines (and
+ * removes the evicted ones) once per frame. so the text held by the component
+ * is bounded by the log and the cost of a message does not depend on how many
+ * were logged before.
+ * <br>
+ * all the methods of this class must be called on the EDT.
+ *
+ * @author Eduardo Vindas
+ */
+public final class JtextLogBind {
+
+    /**
+     * how often (in milliseconds) the new lines are applied.
+     */
+    private static final int FRAME_MILLIS = 33;
+
+    private final JTextComponent Component;
+    private final LogRing Log;
+    private final Timer Flusher;
+    /**
+     * the length of each line shown. oldest first.
+     */
+    private final ArrayDeque<Integer> Shown = new ArrayDeque<>();
+    private final StringBuilder Pending = new StringBuilder();
+    /**
+     * the sequence of the next line to show.
+     */
+    private long Next;
+
+    /**
+     * binds the log into the component. the lines already on the log are
+     * shown on the next frame.
+     *
+     * @param component the component.
+     * @param log the log.
+     */
+    public JtextLogBind(JTextComponent component, LogRing log) {
+        Component = Objects.requireNonNull(component, "the component cannot be null");
+        Log = Objects.requireNonNull(log, "the log cannot be null");
+        Next = Math.max(0, log.getHead() - log.getCapacity());
+        Flusher = new Timer(FRAME_MILLIS, event -> flush());
+        Flusher.setCoalesce(true);
+        Flusher.start();
+    }
+
+    /**
+     * applies the new lines and removes the evicted ones. (at most a removal
+     * and a insertion per frame)
+     */
+    private void flush() {
+        if (Log.getHead() == Next) {
+            return;
+        }
+        Pending.setLength(0);
+        Next = Log.read(Next, line -> {
+            Pending.append(line);
+            Shown.addLast(line.length());
+        });
+        int evicted = 0;
+        while (Shown.size() > Log.getCapacity()) {
+            evicted += Shown.removeFirst();
+        }
+        var doc = Component.getDocument();
+        var length = doc.getLength();
+        //the lines evicted might include some of the new ones.
+        var text = evicted > length ? Pending.substring(evicted - length) : Pending.toString();
+        var remove = Math.min(evicted, length);
+        try {
+            if (doc instanceof AbstractDocument abstractDoc) {
+                if (remove == length) {
+                    abstractDoc.replace(0, length, text, null);
+                } else {
+                    abstractDoc.remove(0, remove);
+                    abstractDoc.insertString(abstractDoc.getLength(), text, null);
+                }
+            } else {
+                doc.remove(0, remove);
+                doc.insertString(doc.getLength(), text, null);
+            }
+        } catch (BadLocationException ex) {
+            //the text was edited by the user. start over from what is there.
+            Shown.clear();
+        }
+    }
+
+    /**
+     * stops showing the log.
+     */
+    public void Unbound() {
+        Flusher.stop();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.app;
+
+import com.aeongames.imgext.components.ImageProcessor;
+import com.aeongames.imgext.components.ImageProcessor.CaptureResult;
+import com.aeongames.imgext.components.ImageProcessor.NearDuplicatePolicy;
+import com.aeongames.imgext.components.ProgressObject;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * a headless (command line) entry point that runs files of text through the
+ * same processing the clipboard data goes through. (metadata check, decode,
+ * hash, dedupe and record) on a pool of workers. each file can hold any
+ * amount of images (data URIs on HTML, JSON...) or be a single Base64 image.
+ * this class does not use any display class so it can run with
+ * {@code java.awt.headless=true}
+ * <br>
+ * usage:
+ * <pre>
+ * BatchExtractor -o &lt;folder&gt; [options] &lt;file or folder&gt;...
+ * </pre>
+ *
+ * @author Eduardo Vindas
+ */
+public final class BatchExtractor {
+
+    private static final String SETTINGS_FILE = "imgext-batch.xml";
+    /**
+     * how often (in seconds) we print the progress.
+     */
+    private static final long REPORT_INTERVAL = 2;
+
+    private final ImageProcessor Processor;
+    private final Path OutputFolder;
+    private final Charset PayloadCharset;
+    private final int Workers;
+    private final boolean Verbose;
+    private final PrintStream Out;
+    private final AtomicLongArray Results = new AtomicLongArray(CaptureResult.values().length);
+    private final AtomicLong BytesRead = new AtomicLong();
+    private final AtomicLong FilesDone = new AtomicLong();
+
+    /**
+     * creates a new batch extractor.
+     *
+     * @param processor the processor that handles each file.
+     * @param outputFolder the folder where the processor records the images.
+     * @param charset the charset of the input files.
+     * @param workers the amount of files to process at the same time.
+     * @param verbose whenever or not to print the result of each file.
+     * @param out where to print the progress.
+     */
+    public BatchExtractor(ImageProcessor processor, Path outputFolder, Charset charset,
+            int workers, boolean verbose, PrintStream out) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("the amount of workers must be at least 1");
+        }
+        Processor = processor;
+        OutputFolder = outputFolder.toAbsolutePath().normalize();
+        PayloadCharset = charset;
+        Workers = workers;
+        Verbose = verbose;
+        Out = out;
+    }
+
+    /**
+     * expands the provided paths into the list of files to process. folders
+     * are walked recursively. files within the output folder are ignored.
+     *
+     * @param inputs the files and folders to process
+     * @return the files to process
+     * @throws IOException if unable to walk a folder.
+     */
+    public List<Path> collectInputs(List<Path> inputs) throws IOException {
+        var files = new ArrayList<Path>();
+        for (var input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    walk.filter(Files::isRegularFile).forEach(files::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                files.add(input);
+            } else {
+                Out.printf("Skipping %s: not a file or folder%n", input);
+            }
+        }
+        files.removeIf(file -> file.toAbsolutePath().normalize().startsWith(OutputFolder));
+        return files;
+    }
+
+    /**
+     * process the files and waits for all of them to complete.
+     *
+     * @param files the files to process.
+     * @return true if every file was processed without errors.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean run(List<Path> files) throws InterruptedException {
+        var start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Workers,
+                Thread.ofPlatform().daemon().name("BatchExtractor-", 1).factory());
+        for (var file : files) {
+            pool.execute(() -> process(file));
+        }
+        pool.shutdown();
+        while (!pool.awaitTermination(REPORT_INTERVAL, TimeUnit.SECONDS)) {
+            report("Processing", files.size(), start);
+        }
+        report("Completed", files.size(), start);
+        Out.printf("Duplicate check: %s%n", Processor.getDedupeCounters());
+        Out.printf("Decoding: %s%n", Processor.getDecodeCounters());
+        Out.printf("Writing: %s%n", Processor.getWriteCounters());
+        var metrics = Processor.getCaptureMetrics();
+        Out.printf("Stages (mean ms): %s%n", metrics.getStageMeanMillis());
+        Out.printf("Failures: %s%n", metrics.getFailuresByCause());
+        return Results.get(CaptureResult.FAILED.ordinal()) == 0;
+    }
+
+    private void process(Path file) {
+        List<CaptureResult> results;
+        try (var payload = Files.newInputStream(file)) {
+            results = Processor.processStream(payload, PayloadCharset, () -> Thread.currentThread().isInterrupted());
+            BytesRead.addAndGet(Files.size(file));
+        } catch (IOException ex) {
+            results = List.of(CaptureResult.FAILED);
+        }
+        for (var result : results) {
+            Results.incrementAndGet(result.ordinal());
+        }
+        FilesDone.incrementAndGet();
+        if (Verbose || results.contains(CaptureResult.FAILED)) {
+            Out.printf("%s: %s%n", file, results);
+        }
+    }
+
+    private void report(String what, int total, long start) {
+        var seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        var files = FilesDone.get();
+        var megabytes = BytesRead.get() / (1024d * 1024d);
+        Out.printf("%s: %d/%d files, %.1f files/sec, %.1f MB/sec, saved %d, duplicates %d, near duplicates %d, not images %d, failed %d%n",
+                what, files, total, files / seconds, megabytes / seconds,
+                Results.get(CaptureResult.SAVED.ordinal()),
+                Results.get(CaptureResult.DUPLICATE.ordinal()),
+                Results.get(CaptureResult.NEAR_DUPLICATE.ordinal()),
+                Results.get(CaptureResult.NOT_AN_IMAGE.ordinal()),
+                Results.get(CaptureResult.FAILED.ordinal()));
+    }
+
+    private static void usage(PrintStream out) {
+        out.println("""
+                usage: BatchExtractor -o <folder> [options] <file or folder>...
+                  -o, --output <folder>        the folder to record the images into (required)
+                  -w, --workers <n>            files to process at the same time (default: cores)
+                  -c, --charset <name>         the charset of the input files (default: UTF-8)
+                  -s, --settings <file>        the settings file (default: <output>/%s)
+                  -n, --near-duplicates <mode> disabled, report or skip
+                  -t, --threshold <bits>       near duplicate threshold (0 to 64)
+                  -r, --reencode               re-encode the images instead of recording the data as is
+                  -p, --pixel-budget <pixels>  the maximum pixels of a decoded image (default: 40000000)
+                  -v, --verbose                print the result of each file and the processing log
+                """.formatted(SETTINGS_FILE));
+    }
+
+    /**
+     * runs the batch extractor. see {@link #usage}
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        System.exit(execute(args));
+    }
+
+    /**
+     * parses the arguments and runs the batch.
+     *
+     * @param args the command line arguments
+     * @return the exit code. 0 if every file was processed, 1 if some failed,
+     * 2 if the arguments are invalid.
+     */
+    static int execute(String[] args) {
+        Path output = null, settings = null;
+        Charset charset = StandardCharsets.UTF_8;
+        int workers = Runtime.getRuntime().availableProcessors();
+        NearDuplicatePolicy policy = null;
+        Integer threshold = null;
+        Long pixelBudget = null;
+        boolean reencode = false, verbose = false;
+        var inputs = new ArrayList<Path>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o", "--output" ->
+                        output = Path.of(args[++i]);
+                    case "-w", "--workers" ->
+                        workers = Integer.parseInt(args[++i]);
+                    case "-c", "--charset" ->
+                        charset = Charset.forName(args[++i]);
+                    case "-s", "--settings" ->
+                        settings = Path.of(args[++i]);
+                    case "-n", "--near-duplicates" ->
+                        policy = NearDuplicatePolicy.valueOf(args[++i].strip().toUpperCase());
+                    case "-t", "--threshold" ->
+                        threshold = Integer.parseInt(args[++i]);
+                    case "-p", "--pixel-budget" ->
+                        pixelBudget = Long.parseLong(args[++i]);
+                    case "-r", "--reencode" ->
+                        reencode = true;
+                    case "-v", "--verbose" ->
+                        verbose = true;
+                    case "-h", "--help" -> {
+                        usage(System.out);
+                        return 0;
+                    }
+                    default ->
+                        inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            System.err.println("Invalid arguments: " + ex.getMessage());
+            usage(System.err);
+            return 2;
+        }
+        if (output == null || inputs.isEmpty() || workers < 1) {
+            usage(System.err);
+            return 2;
+        }
+        try {
+            Files.createDirectories(output);
+            var info = new ProgressObject(settings == null ? output.resolve(SETTINGS_FILE) : settings);
+            info.updateFromSettings();
+            if (verbose) {
+                info.registerCurrentStatus((source, message) -> System.out.print(message));
+            }
+            var processor = new ImageProcessor(info);
+            try {
+                if (!processor.updateSafePath(output.toAbsolutePath())) {
+                    System.err.println("The output folder is not writable: " + output);
+                    return 2;
+                }
+                if (policy != null) {
+                    processor.setNearDuplicatePolicy(policy);
+                }
+                if (threshold != null) {
+                    processor.setSimilarityThreshold(threshold);
+                }
+                if (pixelBudget != null) {
+                    processor.setPixelBudget(pixelBudget);
+                }
+                processor.setPassThroughSave(!reencode);
+                var batch = new BatchExtractor(processor, output, charset, workers, verbose, System.out);
+                var files = batch.collectInputs(inputs);
+                System.out.printf("Processing %d files with %d workers into %s%n", files.size(), workers, output);
+                return batch.run(files) ? 0 : 1;
+            } finally {
+                processor.shutdown();
+            }
+        } catch (IOException | NoSuchAlgorithmException | IllegalArgumentException ex) {
+            System.err.println("Unable to run the batch: " + ex);
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+}
@@ -50,6 +50,8 @@ public class ImageExtractor extends javax.swing.JFrame {
         MyProcessor = new ImageProcessor();
         MainListener = ClipboardService.getClipboardService();
         initListener();
+        //the captures are processed on the background. let the queued ones complete on exit.
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("ImageProcessor-Shutdown").unstarted(MyProcessor::shutdown));
     }
 
     /**
@@ -237,6 +239,11 @@ public class ImageExtractor extends javax.swing.JFrame {
      * @param args the command line arguments
      */
     public static void main(String args[]) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            //headless mode. see BatchExtractor
+            BatchExtractor.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
         /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
          * For details see http://download.oracle.com/javase/tutorial/uiswing/lookandfeel/plaf.html 
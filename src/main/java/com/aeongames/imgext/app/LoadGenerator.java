@@ -0,0 +1,536 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.app;
+
+import com.aeongames.edi.utils.datatransfer.DataTransferException;
+import com.aeongames.edi.utils.threading.StopSignalProvider;
+import com.aeongames.imgext.components.ImageProcessor;
+import com.aeongames.imgext.components.ImageProcessor.CaptureResult;
+import com.aeongames.imgext.components.ProgressObject;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import javax.imageio.ImageIO;
+
+/**
+ * a headless (command line) load generator. builds clipboard contents in
+ * memory (data URIs of generated images) and sends them to
+ * {@link ImageProcessor#handleFlavor} as the clipboard service does. then
+ * reports the throughput and the latency of the captures. so the capture
+ * throughput can be measured without a display nor a person copying images.
+ * <br>
+ * the sizes, formats, charsets (with or without BOM), the ratio of duplicated
+ * payloads and the arrival rate are configurable. the payloads are built
+ * before the run. with a fixed rate the latency is measured from the moment
+ * each capture was due (not when it was sent). so a stall of the clipboard
+ * thread shows on the latency of the captures that were delayed by it.
+ * <br>
+ * usage:
+ * <pre>
+ * LoadGenerator -o &lt;folder&gt; [options]
+ * </pre>
+ *
+ * @author Eduardo Vindas
+ */
+public final class LoadGenerator {
+
+    private static final String SETTINGS_FILE = "imgext-load.xml";
+    /**
+     * how often (in seconds) we print the progress.
+     */
+    private static final long REPORT_INTERVAL = 2;
+    /**
+     * how long (in seconds) we wait for the outcomes once every capture was
+     * sent.
+     */
+    private static final long COMPLETION_WAIT = 120;
+    private static final StopSignalProvider NEVER_STOP = () -> false;
+
+    /**
+     * the formats of the generated images.
+     */
+    private enum Format {
+        PNG("png"),
+        JPEG("jpeg"),
+        GIF("gif"),
+        BMP("bmp");
+
+        private final String Type;
+
+        Format(String type) {
+            Type = type;
+        }
+    }
+
+    /**
+     * the charset of the text and whenever or not the text starts with a BOM.
+     */
+    private record Encoding(Charset charset, boolean bom, DataFlavor flavor) {
+
+        /**
+         * @param spec the name of the charset. with a "+bom" suffix for a BOM.
+         */
+        static Encoding parse(String spec) {
+            var bom = spec.toLowerCase(Locale.ROOT).endsWith("+bom");
+            var charset = Charset.forName(bom ? spec.substring(0, spec.length() - 4) : spec);
+            try {
+                var flavor = new DataFlavor("text/plain;charset=" + charset.name() + ";class=java.io.InputStream");
+                return new Encoding(charset, bom, flavor);
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return bom ? charset.name() + "+BOM" : charset.name();
+        }
+    }
+
+    /**
+     * what to generate for a capture.
+     *
+     * @param size the approximate size of the image.
+     * @param copyOf the capture whose payload is repeated. -1 for a new
+     * image.
+     */
+    private record Spec(int size, Format format, Encoding encoding, long seed, int copyOf) {
+
+    }
+
+    /**
+     * the clipboard content of a capture.
+     */
+    private static final class Capture implements Transferable {
+
+        private final int Index;
+        private final DataFlavor Flavor;
+        private final byte[] Payload;
+        /**
+         * when the capture was due. (or sent if there is no rate)
+         */
+        private long Arrival;
+
+        Capture(int index, DataFlavor flavor, byte[] payload) {
+            Index = index;
+            Flavor = flavor;
+            Payload = payload;
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return new DataFlavor[]{Flavor};
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return Flavor.equals(flavor);
+        }
+
+        @Override
+        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+            if (!isDataFlavorSupported(flavor)) {
+                throw new UnsupportedFlavorException(flavor);
+            }
+            return new ByteArrayInputStream(Payload);
+        }
+    }
+
+    private final ImageProcessor Processor;
+    private final int Count;
+    private final double Rate;
+    private final int[] Sizes;
+    private final Format[] Formats;
+    private final Encoding[] Encodings;
+    private final double Duplicates;
+    private final long Seed;
+    private final PrintStream Out;
+    /**
+     * the time from due (or sent) to outcome of each capture.
+     */
+    private final long[] Latencies;
+    /**
+     * the time each capture held the calling (clipboard) thread.
+     */
+    private final long[] Ingest;
+    private final AtomicLongArray Results = new AtomicLongArray(CaptureResult.values().length);
+    private final AtomicLong Completed = new AtomicLong();
+    private long Accepted = 0, Rejected = 0, BytesSent = 0;
+
+    /**
+     * creates a new load generator.
+     *
+     * @param processor the processor to send the captures to.
+     * @param count the amount of captures.
+     * @param rate the captures per second. 0 sends each capture once the
+     * previous is queued.
+     * @param sizes the approximate sizes (in bytes) of the images. picked at
+     * random.
+     * @param formats the formats of the images. picked at random.
+     * @param encodings the charsets of the text. picked at random.
+     * @param duplicates the fraction (0 to 1) of captures that repeat the
+     * payload of a earlier one.
+     * @param seed the seed of the generated payloads.
+     * @param out where to print the progress.
+     */
+    private LoadGenerator(ImageProcessor processor, int count, double rate, int[] sizes, Format[] formats,
+            Encoding[] encodings, double duplicates, long seed, PrintStream out) {
+        if (count < 1 || rate < 0 || duplicates < 0 || duplicates > 1
+                || sizes.length == 0 || formats.length == 0 || encodings.length == 0) {
+            throw new IllegalArgumentException("invalid load");
+        }
+        Processor = processor;
+        Count = count;
+        Rate = rate;
+        Sizes = sizes;
+        Formats = formats;
+        Encodings = encodings;
+        Duplicates = duplicates;
+        Seed = seed;
+        Out = out;
+        Latencies = new long[count];
+        Ingest = new long[count];
+    }
+
+    /**
+     * builds the payload of each capture. the images are built in parallel.
+     */
+    private List<Capture> prepare() {
+        var random = new Random(Seed);
+        var specs = new Spec[Count];
+        for (int i = 0; i < Count; i++) {
+            if (i > 0 && random.nextDouble() < Duplicates) {
+                var original = specs[random.nextInt(i)];
+                //the copy of a copy repeats the original.
+                specs[i] = new Spec(0, null, null, 0, original.copyOf() >= 0 ? original.copyOf() : indexOf(specs, original));
+            } else {
+                specs[i] = new Spec(Sizes[random.nextInt(Sizes.length)], Formats[random.nextInt(Formats.length)],
+                        Encodings[random.nextInt(Encodings.length)], random.nextLong(), -1);
+            }
+        }
+        var payloads = new byte[Count][];
+        IntStream.range(0, Count).parallel().filter(i -> specs[i].copyOf() < 0)
+                .forEach(i -> payloads[i] = payload(specs[i]));
+        var captures = new ArrayList<Capture>(Count);
+        for (int i = 0; i < Count; i++) {
+            var source = specs[i].copyOf() < 0 ? i : specs[i].copyOf();
+            captures.add(new Capture(i, specs[source].encoding().flavor(), payloads[source]));
+        }
+        return captures;
+    }
+
+    private static int indexOf(Spec[] specs, Spec spec) {
+        for (int i = 0; i < specs.length; i++) {
+            if (specs[i] == spec) {
+                return i;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return a image of random pixels (so it does not compress) as a data
+     * URI. encoded on the charset of the spec.
+     */
+    private static byte[] payload(Spec spec) {
+        //about 3 bytes per pixel once encoded.
+        var side = Math.max(8, (int) Math.sqrt(spec.size() / 3d));
+        var image = new BufferedImage(side, side, BufferedImage.TYPE_INT_RGB);
+        var pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        var random = new Random(spec.seed());
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt(0x1000000);
+        }
+        var data = new ByteArrayOutputStream(spec.size() + 1024);
+        try {
+            if (!ImageIO.write(image, spec.format().Type, data)) {
+                throw new IllegalArgumentException("There is no writer for " + spec.format());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        var text = new StringBuilder(data.size() * 4 / 3 + 64);
+        if (spec.encoding().bom()) {
+            text.append('\uFEFF');
+        }
+        text.append("data:image/").append(spec.format().Type).append(";base64,")
+                .append(Base64.getEncoder().encodeToString(data.toByteArray()));
+        return text.toString().getBytes(spec.encoding().charset());
+    }
+
+    private void captured(Transferable source, CaptureResult result) {
+        if (source instanceof Capture capture) {
+            Latencies[capture.Index] = System.nanoTime() - capture.Arrival;
+            Results.incrementAndGet(result.ordinal());
+            Completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * sends the captures (at the rate) and waits for their outcomes.
+     *
+     * @return true if every capture was queued and completed without errors.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private boolean run(List<Capture> captures) throws InterruptedException {
+        Processor.addCaptureListener(this::captured);
+        var period = Rate > 0 ? TimeUnit.SECONDS.toNanos(1) / Rate : 0;
+        var start = System.nanoTime();
+        var nextReport = start + TimeUnit.SECONDS.toNanos(REPORT_INTERVAL);
+        for (var capture : captures) {
+            var due = start + (long) (capture.Index * period);
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            var sent = System.nanoTime();
+            capture.Arrival = Rate > 0 ? due : sent;
+            boolean queued;
+            try {
+                queued = Processor.handleFlavor(capture.Flavor, NEVER_STOP, capture);
+            } catch (DataTransferException ex) {
+                queued = false;
+            }
+            Ingest[capture.Index] = System.nanoTime() - sent;
+            if (queued) {
+                Accepted++;
+                BytesSent += capture.Payload.length;
+            } else {
+                Rejected++;
+            }
+            if (System.nanoTime() >= nextReport) {
+                report("Sending", start);
+                nextReport += TimeUnit.SECONDS.toNanos(REPORT_INTERVAL);
+            }
+        }
+        var sentAll = System.nanoTime();
+        var deadline = sentAll + TimeUnit.SECONDS.toNanos(COMPLETION_WAIT);
+        while (Completed.get() < Accepted && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            if (System.nanoTime() >= nextReport) {
+                report("Waiting", start);
+                nextReport += TimeUnit.SECONDS.toNanos(REPORT_INTERVAL);
+            }
+        }
+        report("Completed", start);
+        var seconds = (sentAll - start) / 1e9;
+        Out.printf("Sent %d captures in %.1f s (%.1f/sec), queued %d, rejected %d%n",
+                captures.size(), seconds, captures.size() / Math.max(seconds, 1e-9), Accepted, Rejected);
+        printLatency("Latency", Latencies, captures, true);
+        printLatency("Ingest", Ingest, captures, false);
+        Out.printf("Duplicate check: %s%n", Processor.getDedupeCounters());
+        Out.printf("Decoding: %s%n", Processor.getDecodeCounters());
+        Out.printf("Writing: %s%n", Processor.getWriteCounters());
+        var metrics = Processor.getCaptureMetrics();
+        Out.printf("Stages (mean ms): %s%n", metrics.getStageMeanMillis());
+        Out.printf("Failures: %s%n", metrics.getFailuresByCause());
+        return Rejected == 0 && Completed.get() >= Accepted && Results.get(CaptureResult.FAILED.ordinal()) == 0;
+    }
+
+    private void report(String what, long start) {
+        var seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        var completed = Completed.get();
+        Out.printf("%s: %d/%d completed, %.1f captures/sec, %.1f MB/sec, saved %d, duplicates %d, near duplicates %d, not images %d, failed %d%n",
+                what, completed, Count, completed / seconds, BytesSent / (1024d * 1024d) / seconds,
+                Results.get(CaptureResult.SAVED.ordinal()),
+                Results.get(CaptureResult.DUPLICATE.ordinal()),
+                Results.get(CaptureResult.NEAR_DUPLICATE.ordinal()),
+                Results.get(CaptureResult.NOT_AN_IMAGE.ordinal()),
+                Results.get(CaptureResult.FAILED.ordinal()));
+    }
+
+    /**
+     * prints the percentiles of the times.
+     *
+     * @param completedOnly true to only count the captures with a outcome.
+     */
+    private void printLatency(String what, long[] times, List<Capture> captures, boolean completedOnly) {
+        var values = new long[times.length];
+        int count = 0;
+        for (int i = 0; i < times.length; i++) {
+            if (!completedOnly || times[i] > 0) {
+                values[count++] = times[i];
+            }
+        }
+        if (count == 0) {
+            Out.printf("%s: no captures%n", what);
+            return;
+        }
+        Arrays.sort(values, 0, count);
+        Out.printf("%s (ms): p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f (%d captures)%n", what,
+                percentile(values, count, 0.5), percentile(values, count, 0.99),
+                percentile(values, count, 0.999), values[count - 1] / 1e6, count);
+    }
+
+    private static double percentile(long[] sorted, int count, double percentile) {
+        var index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+
+    private static int[] parseSizes(String list) {
+        return Arrays.stream(list.split(",")).map(String::strip).mapToInt(size -> {
+            var lower = size.toLowerCase(Locale.ROOT);
+            var unit = lower.endsWith("k") ? 1024 : lower.endsWith("m") ? 1024 * 1024 : 1;
+            var value = Integer.parseInt(unit == 1 ? lower : lower.substring(0, lower.length() - 1));
+            if (value < 1) {
+                throw new IllegalArgumentException("invalid size " + size);
+            }
+            return Math.multiplyExact(value, unit);
+        }).toArray();
+    }
+
+    private static void usage(PrintStream out) {
+        out.println("""
+                usage: LoadGenerator -o <folder> [options]
+                  -o, --output <folder>       the folder to record the images into (required)
+                  -n, --captures <n>          the amount of captures to send (default: 1000)
+                  -r, --rate <n>              captures per second. 0 sends each once the previous is queued (default: 0)
+                  -z, --sizes <list>          approximate image sizes in bytes. k and m suffixes (default: 64k)
+                  -f, --formats <list>        png, jpeg, gif or bmp (default: png)
+                  -c, --charsets <list>       the charsets of the text. add +bom for a byte order mark (default: UTF-8)
+                  -d, --duplicates <ratio>    the fraction of captures that repeat a earlier payload. 0 to 1 (default: 0)
+                  -e, --seed <n>              the seed of the generated payloads (default: 42)
+                  -s, --settings <file>       the settings file (default: <output>/%s)
+                  -v, --verbose               print the processing log
+                example: LoadGenerator -o /tmp/load -n 5000 -r 200 -z 16k,256k,2m -f png,jpeg -c UTF-8,UTF-16LE+bom -d 0.2
+                """.formatted(SETTINGS_FILE));
+    }
+
+    /**
+     * runs the load generator. see {@link #usage}
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        System.exit(execute(args));
+    }
+
+    /**
+     * parses the arguments and runs the load.
+     *
+     * @param args the command line arguments
+     * @return the exit code. 0 if every capture was recorded (or found
+     * duplicated), 1 if some failed or did not complete, 2 if the arguments
+     * are invalid.
+     */
+    static int execute(String[] args) {
+        Path output = null, settings = null;
+        int count = 1000;
+        double rate = 0, duplicates = 0;
+        long seed = 42;
+        int[] sizes = {64 * 1024};
+        Format[] formats = {Format.PNG};
+        Encoding[] encodings;
+        boolean verbose = false;
+        try {
+            encodings = new Encoding[]{Encoding.parse("UTF-8")};
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-o", "--output" ->
+                        output = Path.of(args[++i]);
+                    case "-n", "--captures" ->
+                        count = Integer.parseInt(args[++i]);
+                    case "-r", "--rate" ->
+                        rate = Double.parseDouble(args[++i]);
+                    case "-z", "--sizes" ->
+                        sizes = parseSizes(args[++i]);
+                    case "-f", "--formats" ->
+                        formats = Arrays.stream(args[++i].split(","))
+                                .map(format -> Format.valueOf(format.strip().toUpperCase(Locale.ROOT)))
+                                .toArray(Format[]::new);
+                    case "-c", "--charsets" ->
+                        encodings = Arrays.stream(args[++i].split(","))
+                                .map(charset -> Encoding.parse(charset.strip()))
+                                .toArray(Encoding[]::new);
+                    case "-d", "--duplicates" ->
+                        duplicates = Double.parseDouble(args[++i]);
+                    case "-e", "--seed" ->
+                        seed = Long.parseLong(args[++i]);
+                    case "-s", "--settings" ->
+                        settings = Path.of(args[++i]);
+                    case "-v", "--verbose" ->
+                        verbose = true;
+                    case "-h", "--help" -> {
+                        usage(System.out);
+                        return 0;
+                    }
+                    default ->
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            System.err.println("Invalid arguments: " + ex.getMessage());
+            usage(System.err);
+            return 2;
+        }
+        if (output == null || count < 1 || rate < 0 || duplicates < 0 || duplicates > 1) {
+            usage(System.err);
+            return 2;
+        }
+        try {
+            Files.createDirectories(output);
+            var info = new ProgressObject(settings == null ? output.resolve(SETTINGS_FILE) : settings);
+            info.updateFromSettings();
+            if (verbose) {
+                info.registerCurrentStatus((source, message) -> System.out.print(message));
+            }
+            var processor = new ImageProcessor(info);
+            try {
+                if (!processor.updateSafePath(output.toAbsolutePath())) {
+                    System.err.println("The output folder is not writable: " + output);
+                    return 2;
+                }
+                var load = new LoadGenerator(processor, count, rate, sizes, formats, encodings, duplicates, seed, System.out);
+                System.out.printf("Preparing %d captures (sizes %s, formats %s, charsets %s, duplicates %.0f%%)%n",
+                        count, Arrays.toString(sizes), Arrays.toString(formats), Arrays.toString(encodings), duplicates * 100);
+                var captures = load.prepare();
+                System.out.printf("Sending %d captures %s into %s%n", count,
+                        rate > 0 ? String.format("at %.1f/sec", rate) : "as fast as they are queued", output);
+                return load.run(captures) ? 0 : 1;
+            } finally {
+                processor.shutdown();
+            }
+        } catch (IOException | UncheckedIOException | NoSuchAlgorithmException | IllegalArgumentException ex) {
+            System.err.println("Unable to run the load: " + ex);
+            return 1;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+}
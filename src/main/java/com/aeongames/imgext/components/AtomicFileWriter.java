@@ -0,0 +1,337 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.error.LoggingHelper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * moves the temporal (part) files into place once their data is on disk. a
+ * file is never visible under its final name until is complete: the data is
+ * written into a part file on the same folder, synced (fsync) and then linked
+ * (or moved if the file system has no hard links. FAT) into place. a existing file is
+ * never replaced: if another writer took the name meanwhile the commit fails
+ * with {@link FileAlreadyExistsException} and the part file is kept. so it can
+ * be committed under another name.
+ * <br>
+ * the commits run on a single thread. all the part files queued while a batch
+ * is committed make the next batch. the files of a batch are synced at the
+ * same time (each on its own virtual thread, so the file system can group them)
+ * and share the sync of the folder. so under load a capture waits for a single
+ * round of syncs instead of the syncs of every capture queued before it.
+ * (group commit)
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class AtomicFileWriter {
+
+    /**
+     * the maximum amount of files committed on a batch.
+     */
+    private static final int MAX_BATCH = 32;
+    /**
+     * how long (in minutes) a part file must be untouched to be considered
+     * left over by a run that did not complete.
+     */
+    private static final long STALE_PART = 10;
+    /**
+     * the types of file store (lower case) that do not support hard links.
+     */
+    private static final Set<String> NO_LINK_STORES = Set.of("vfat", "msdos", "fat", "fat12", "fat16", "fat32", "exfat");
+
+    private record Commit(Path part, Path target, long queued, CompletableFuture<Path> done) {
+
+    }
+
+    private final LinkedBlockingQueue<Commit> Pending = new LinkedBlockingQueue<>();
+    private final WriteCounters Counters;
+    private final Thread Worker;
+    private final ExecutorService Syncs = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean Closed = false;
+
+    /**
+     * @param counters receives the work done.
+     */
+    AtomicFileWriter(WriteCounters counters) {
+        Counters = Objects.requireNonNull(counters, "the counters cannot be null");
+        Worker = Thread.ofVirtual().name("Capture-Writer").unstarted(this::work);
+        Worker.start();
+    }
+
+    /**
+     * creates a empty part file with a unique name on the folder. unlike
+     * {@link Files#createTempFile} (owner only on POSIX) the file gets the
+     * default permissions. as the file keeps them once in place.
+     *
+     * @param folder the folder. (the same of the final file)
+     * @param prefix the start of the name.
+     * @param suffix the end of the name.
+     * @return the new file.
+     * @throws IOException if unable to create the file.
+     */
+    static Path createPart(Path folder, String prefix, String suffix) throws IOException {
+        while (true) {
+            var part = folder.resolve(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + suffix);
+            try {
+                return Files.createFile(part);
+            } catch (FileAlreadyExistsException ex) {
+                //taken. try another name.
+            }
+        }
+    }
+
+    /**
+     * opens the part file to write the data into. closing the stream closes
+     * the file.
+     *
+     * @param part the part file. (must exist)
+     * @return the stream.
+     * @throws IOException if unable to open the file.
+     */
+    static OutputStream openPart(Path part) throws IOException {
+        var channel = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedOutputStream(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * queues the part file to be synced and moved into place.
+     *
+     * @param part the complete part file. (closed)
+     * @param target the final file. on the same folder as the part file.
+     * @return completes with the target once the file is in place. or with the
+     * error. (the part file is removed if the commit fails. unless the target
+     * already exists)
+     */
+    CompletableFuture<Path> commit(Path part, Path target) {
+        var done = new CompletableFuture<Path>();
+        if (Closed) {
+            done.completeExceptionally(new IOException("the writer is closed"));
+            return done;
+        }
+        Counters.queued();
+        Pending.add(new Commit(Objects.requireNonNull(part), Objects.requireNonNull(target), System.nanoTime(), done));
+        return done;
+    }
+
+    private void work() {
+        var batch = new ArrayList<Commit>(MAX_BATCH);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(Pending.take());
+                Pending.drainTo(batch, MAX_BATCH - 1);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            //requested to stop.
+        }
+    }
+
+    private void commit(List<Commit> batch) {
+        Counters.batch();
+        var synced = new ArrayList<Future<?>>(batch.size());
+        for (var commit : batch) {
+            synced.add(Syncs.submit(() -> {
+                sync(commit.part());
+                return null;
+            }));
+        }
+        var moved = new ArrayList<Commit>(batch.size());
+        var folders = new LinkedHashSet<Path>();
+        for (int i = 0; i < batch.size(); i++) {
+            var commit = batch.get(i);
+            try {
+                awaitSync(synced.get(i));
+                move(commit.part(), commit.target());
+                folders.add(commit.target().toAbsolutePath().getParent());
+                moved.add(commit);
+            } catch (IOException | RuntimeException ex) {
+                fail(commit, ex);
+            }
+        }
+        //once per folder. so the renames of the whole batch are durable.
+        for (var folder : folders) {
+            syncFolder(folder);
+        }
+        for (var commit : moved) {
+            Counters.completed(true, System.nanoTime() - commit.queued());
+            commit.done().complete(commit.target());
+        }
+    }
+
+    private void fail(Commit commit, Exception ex) {
+        try {
+            if (!(ex instanceof FileAlreadyExistsException)) {
+                Files.deleteIfExists(commit.part());
+            }
+        } catch (IOException err) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to remove " + commit.part(), err);
+        }
+        Counters.completed(false, System.nanoTime() - commit.queued());
+        commit.done().completeExceptionally(ex);
+    }
+
+    private static void awaitSync(Future<?> sync) throws IOException {
+        try {
+            sync.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            throw new IOException("Unable to sync the file", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while syncing the file", ex);
+        }
+    }
+
+    private static void sync(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * puts the part file into place. unlike a (atomic) rename the link fails
+     * if the target exists instead of replacing it.
+     *
+     * @throws FileAlreadyExistsException if the target exists.
+     */
+    private static void move(Path part, Path target) throws IOException {
+        try {
+            Files.createLink(target, part);
+        } catch (UnsupportedOperationException ex) {
+            //no (hard) links on this file system. a plain move also refuses to replace the target.
+            Files.move(part, target);
+            return;
+        } catch (FileAlreadyExistsException ex) {
+            throw ex;
+        } catch (FileSystemException ex) {
+            //the OS reports the lack of links as a plain error (EPERM) any other error fails the commit.
+            if (!hasNoLinks(part)) {
+                throw ex;
+            }
+            Files.move(part, target);
+            return;
+        }
+        try {
+            Files.delete(part);
+        } catch (IOException ex) {
+            //the file is in place. the part is swept once stale.
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to remove " + part, ex);
+        }
+    }
+
+    /**
+     * @return true if the file lives on a file store that cannot hold hard
+     * links.
+     */
+    private static boolean hasNoLinks(Path file) {
+        try {
+            return NO_LINK_STORES.contains(Files.getFileStore(file).type().toLowerCase(Locale.ROOT));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * removes the part files left on the folder by runs that did not complete
+     * (for example a crash while writing). only the ones that were not
+     * modified for a while, as another processor might be writing into the
+     * same folder.
+     *
+     * @param folder the folder.
+     * @param glob the name of the part files.
+     * @return the amount of files removed.
+     */
+    static int sweepParts(Path folder, String glob) {
+        var stale = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(STALE_PART);
+        int removed = 0;
+        try (var parts = Files.newDirectoryStream(folder, glob)) {
+            for (var part : parts) {
+                try {
+                    if (Files.isRegularFile(part) && Files.getLastModifiedTime(part).toMillis() < stale
+                            && Files.deleteIfExists(part)) {
+                        removed++;
+                    }
+                } catch (IOException ex) {
+                    LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to remove " + part, ex);
+                }
+            }
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to look for part files on " + folder, ex);
+        }
+        return removed;
+    }
+
+    private static void syncFolder(Path folder) {
+        try (var channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            //some systems (Windows) cannot open a folder. the rename is still done.
+        }
+    }
+
+    /**
+     * stops accepting files. waits (up to the timeout) for the queued ones to
+     * be committed and stops the worker. the files that are still queued are
+     * removed.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if every file was committed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        Closed = true;
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (Counters.getQueueDepth() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Worker.interrupt();
+        Worker.join();
+        Syncs.shutdown();
+        var dropped = new ArrayList<Commit>();
+        Pending.drainTo(dropped);
+        for (var commit : dropped) {
+            fail(commit, new IOException("the writer was closed"));
+        }
+        return dropped.isEmpty();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.common.XxHash64;
+import com.aeongames.edi.utils.visual.ImageFormat;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageReader;
+
+/**
+ * the state of a single capture (payload) while it is decoded: its own
+ * hashers, the buffers for the metadata check and the type of the image being
+ * read. so captures that run at the same time do not share any mutable state.
+ * the context also keeps a image reader per format. (created on first use and
+ * reset after each image)
+ * <br>
+ * the contexts are pooled. {@link #acquire()} takes one from the pool (or
+ * creates it) and {@link #close()} resets it and returns it to the pool.
+ * <br>
+ * a context is NOT Sync. it belongs to the thread that acquired it until it
+ * is closed.
+ *
+ * @author Eduardo Vindas
+ */
+final class CaptureContext implements AutoCloseable {
+
+    static final String ALGORITHM = "SHA-256";
+    /**
+     * the amount of characters read from the start of the payload to check
+     * the metadata.
+     */
+    static final int METADATA_CHARS = 32;
+    /**
+     * the widest charset we handle. (UTF-32)
+     */
+    private static final int MAX_STRIDE = 4;
+    /**
+     * the maximum amount of idle contexts kept on the pool.
+     */
+    private static final int MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final ConcurrentLinkedQueue<CaptureContext> IDLE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger IdleCount = new AtomicInteger();
+
+    private final MessageDigest Digest;
+    private final XxHash64 Fingerprint = new XxHash64();
+    private final byte[] MetadataBytes = new byte[MAX_STRIDE * METADATA_CHARS];
+    private final CharBuffer MetadataChars = CharBuffer.allocate(METADATA_CHARS);
+    private final byte[] SignatureBytes = new byte[ImageFormat.SIGNATURE_LENGTH];
+    private final ImageReader[] Readers = new ImageReader[ImageFormat.count()];
+    private CharsetDecoder Decoder;
+    /**
+     * the type reported by the metadata (data URI) of the current image.
+     */
+    private String MetadataType = "";
+    /**
+     * the format the image reader detected for the current image.
+     */
+    private String ReaderType = "";
+    /**
+     * the time spent decoding the Base64 text of the current image.
+     */
+    private long Base64Nanos = 0;
+    /**
+     * the flight recorder event of the image being decoded.
+     */
+    private CaptureEvent Event;
+
+    private CaptureContext(MessageDigest digest) {
+        Digest = digest;
+    }
+
+    /**
+     * creates the first context and puts it on the pool. so a missing digest
+     * algorithm is reported before the processor starts any work.
+     *
+     * @throws NoSuchAlgorithmException if the {@link #ALGORITHM} is not
+     * available.
+     */
+    static void prepare() throws NoSuchAlgorithmException {
+        new CaptureContext(MessageDigest.getInstance(ALGORITHM)).close();
+    }
+
+    /**
+     * takes a context from the pool. (or creates a new one if the pool is
+     * empty)
+     *
+     * @return a clean context.
+     */
+    static CaptureContext acquire() {
+        var context = IDLE.poll();
+        if (Objects.isNull(context)) {
+            try {
+                return new CaptureContext(MessageDigest.getInstance(ALGORITHM));
+            } catch (NoSuchAlgorithmException ex) {
+                //checked by prepare() when the processor is created.
+                throw new IllegalStateException(ex);
+            }
+        }
+        IdleCount.decrementAndGet();
+        return context;
+    }
+
+    /**
+     * starts a new image of the capture. the hashers and the types are reset.
+     *
+     * @param metadataType the type reported by the metadata. (if any)
+     */
+    void beginImage(String metadataType) {
+        Digest.reset();
+        Fingerprint.reset();
+        MetadataType = Objects.isNull(metadataType) ? "" : metadataType;
+        ReaderType = "";
+        Base64Nanos = 0;
+    }
+
+    /**
+     * @return the SHA-256 digester of the image.
+     */
+    MessageDigest getDigest() {
+        return Digest;
+    }
+
+    /**
+     * @return the xxHash of the image. (also counts the bytes)
+     */
+    XxHash64 getFingerprint() {
+        return Fingerprint;
+    }
+
+    /**
+     * @return the buffer to read the start of the payload into. (large enough
+     * for {@link #METADATA_CHARS} characters on any charset)
+     */
+    byte[] getMetadataBytes() {
+        return MetadataBytes;
+    }
+
+    /**
+     * @return the (cleared) buffer to decode the start of the payload into.
+     */
+    CharBuffer getMetadataChars() {
+        return MetadataChars.clear();
+    }
+
+    /**
+     * @return a (reset) decoder for the charset. reused while the charset is
+     * the same.
+     */
+    CharsetDecoder getDecoder(Charset charset) {
+        if (Objects.isNull(Decoder) || !Decoder.charset().equals(charset)) {
+            Decoder = charset.newDecoder();
+        }
+        return Decoder.reset();
+    }
+
+    /**
+     * @return the buffer to read the signature of the image into.
+     */
+    byte[] getSignatureBytes() {
+        return SignatureBytes;
+    }
+
+    /**
+     * @param format the format of the image.
+     * @return the reader of the format. or null if there is no reader for it.
+     * the reader must be reset once the image is read.
+     */
+    ImageReader getReader(ImageFormat format) {
+        var reader = Readers[format.ordinal()];
+        if (Objects.isNull(reader)) {
+            reader = Readers[format.ordinal()] = format.createReader();
+        }
+        return reader;
+    }
+
+    void addBase64Nanos(long nanos) {
+        Base64Nanos += nanos;
+    }
+
+    /**
+     * @return the time spent decoding the Base64 text of the current image.
+     */
+    long getBase64Nanos() {
+        return Base64Nanos;
+    }
+
+    /**
+     * @return the flight recorder event of the image being decoded.
+     */
+    CaptureEvent getEvent() {
+        return Event;
+    }
+
+    void setEvent(CaptureEvent event) {
+        Event = event;
+    }
+
+    String getMetadataType() {
+        return MetadataType;
+    }
+
+    void setMetadataType(String type) {
+        MetadataType = Objects.isNull(type) ? "" : type;
+    }
+
+    String getReaderType() {
+        return ReaderType;
+    }
+
+    void setReaderType(String type) {
+        ReaderType = Objects.isNull(type) ? "" : type;
+    }
+
+    /**
+     * determines the file extension to use for the data. we prefer the format
+     * the image reader detected as it is the actual format of the bytes. and
+     * fall back to the type reported on the metadata.
+     *
+     * @return the extension to use.
+     */
+    String getFileExtension() {
+        var format = ReaderType.strip().toLowerCase();
+        if (format.isBlank()) {
+            return MetadataType;
+        }
+        return format.equals("jpeg") ? "jpg" : format;
+    }
+
+    /**
+     * resets the context and returns it to the pool. (or releases the
+     * readers if the pool is full)
+     */
+    @Override
+    public void close() {
+        beginImage(null);
+        Event = null;
+        if (IdleCount.incrementAndGet() <= MAX_IDLE) {
+            IDLE.offer(this);
+        } else {
+            IdleCount.decrementAndGet();
+            for (var reader : Readers) {
+                if (Objects.nonNull(reader)) {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+}
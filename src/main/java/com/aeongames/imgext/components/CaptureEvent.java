@@ -0,0 +1,73 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.nio.charset.Charset;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * the flight recorder (JFR) event of a capture. spans from the moment the
+ * image starts to be decoded out of the payload until its outcome is known.
+ * (recorded, duplicate, failed...) the stages of it are recorded as
+ * {@link CaptureStageEvent}
+ * <br>
+ * when the event is not enabled on the recording committing it does nothing.
+ *
+ * @author Eduardo Vindas
+ */
+@Name("com.aeongames.imgext.Capture")
+@Label("Capture")
+@Category({"Image Extractor", "Capture"})
+@Description("A image decoded from a clipboard payload. until its outcome is known")
+final class CaptureEvent extends Event {
+
+    @Label("Payload Size")
+    @Description("The size of the payload that holds the image. -1 if unknown")
+    @DataAmount
+    long PayloadSize;
+
+    @Label("Charset")
+    String CharsetName;
+
+    @Label("Format")
+    String Format;
+
+    @Label("Width")
+    int Width;
+
+    @Label("Height")
+    int Height;
+
+    @Label("Outcome")
+    String Outcome;
+
+    /**
+     * creates and begins the event of a capture.
+     *
+     * @param payloadSize the size of the payload. -1 if unknown.
+     * @param charset the charset of the payload.
+     * @return the event.
+     */
+    static CaptureEvent start(long payloadSize, Charset charset) {
+        var event = new CaptureEvent();
+        event.PayloadSize = payloadSize;
+        event.CharsetName = charset.name();
+        event.begin();
+        return event;
+    }
+}
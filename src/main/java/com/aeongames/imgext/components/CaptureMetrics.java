@@ -0,0 +1,299 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * records the metrics of the captures. see {@link CaptureMetricsMXBean}
+ * <br>
+ * recording does not allocate nor lock: the counters are striped
+ * ({@link LongAdder}) and the histograms have fixed (power of 2) buckets. so
+ * it can stay enabled on the capture path.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class CaptureMetrics implements CaptureMetricsMXBean {
+
+    /**
+     * the stages of a capture.
+     */
+    enum Stage {
+        /**
+         * opening the clipboard and taking the snapshot of the payload.
+         */
+        CLIPBOARD_OPEN,
+        /**
+         * checking the start of the payload. (data URI or raw Base64)
+         */
+        METADATA,
+        /**
+         * decoding the Base64 text. (while the image is read)
+         */
+        BASE64_DECODE,
+        /**
+         * reading the image. (without the Base64 decoding)
+         */
+        IMAGE_DECODE,
+        /**
+         * the SHA-256 and perceptual hashes of the image.
+         */
+        HASHING,
+        /**
+         * looking for the image on the recorded ones.
+         */
+        DEDUPE_LOOKUP,
+        /**
+         * writing the file and moving it into place.
+         */
+        FILE_WRITE,
+        /**
+         * recording the settings file.
+         */
+        SETTINGS_SAVE
+    }
+
+    /**
+     * why a capture failed.
+     */
+    enum Failure {
+        /**
+         * the clipboard could not be read.
+         */
+        CLIPBOARD,
+        /**
+         * the start of the payload could not be read.
+         */
+        METADATA,
+        /**
+         * the data is not a image we can read.
+         */
+        NOT_AN_IMAGE,
+        /**
+         * the data could not be decoded.
+         */
+        DECODE,
+        /**
+         * the image needs more pixels than the budget.
+         */
+        OVER_BUDGET,
+        /**
+         * the file could not be recorded.
+         */
+        WRITE,
+        /**
+         * the processing was requested to stop.
+         */
+        STOPPED
+    }
+
+    /**
+     * the upper bound (in microseconds, exclusive) of each bucket. 1us to
+     * about 16s. the last bucket counts the rest.
+     */
+    private static final long[] BOUNDS = new long[25];
+    private static final Stage[] STAGES = Stage.values();
+    private static final Failure[] FAILURES = Failure.values();
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS[i] = 1L << i;
+        }
+    }
+
+    /**
+     * the count, total, maximum and histogram of a stage.
+     */
+    private static final class StageStats {
+
+        private final LongAdder Count = new LongAdder();
+        private final LongAdder TotalNanos = new LongAdder();
+        private final AtomicLong MaxNanos = new AtomicLong();
+        private final LongAdder[] Buckets = new LongAdder[BOUNDS.length + 1];
+
+        StageStats() {
+            for (int i = 0; i < Buckets.length; i++) {
+                Buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            nanos = Math.max(0, nanos);
+            Count.increment();
+            TotalNanos.add(nanos);
+            var max = MaxNanos.get();
+            while (nanos > max && !MaxNanos.compareAndSet(max, nanos)) {
+                max = MaxNanos.get();
+            }
+            var micros = nanos / 1000;
+            Buckets[Math.min(Buckets.length - 1, Long.SIZE - Long.numberOfLeadingZeros(micros))].increment();
+        }
+
+        double meanMillis() {
+            var count = Count.sum();
+            return count == 0 ? 0 : TotalNanos.sum() / 1e6 / count;
+        }
+
+        long[] histogram() {
+            var values = new long[Buckets.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Buckets[i].sum();
+            }
+            return values;
+        }
+
+        void reset() {
+            Count.reset();
+            TotalNanos.reset();
+            MaxNanos.set(0);
+            for (var bucket : Buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    private final StageStats[] Stages = new StageStats[STAGES.length];
+    private final LongAdder[] Failures = new LongAdder[FAILURES.length];
+    private final LongAdder PayloadBytes = new LongAdder();
+    private final LongAdder ImageBytes = new LongAdder();
+    private final LongAdder DuplicatesSkipped = new LongAdder();
+
+    CaptureMetrics() {
+        for (int i = 0; i < Stages.length; i++) {
+            Stages[i] = new StageStats();
+        }
+        for (int i = 0; i < Failures.length; i++) {
+            Failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * records a run of the stage.
+     *
+     * @param stage the stage.
+     * @param nanos how long it took.
+     */
+    void record(Stage stage, long nanos) {
+        Stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * records a run of the stage that started at the provided time.
+     *
+     * @param stage the stage.
+     * @param start the {@link System#nanoTime()} when the stage started.
+     */
+    void recordSince(Stage stage, long start) {
+        record(stage, System.nanoTime() - start);
+    }
+
+    void failure(Failure cause) {
+        Failures[cause.ordinal()].increment();
+    }
+
+    void payloadBytes(long bytes) {
+        PayloadBytes.add(bytes);
+    }
+
+    void imageBytes(long bytes) {
+        ImageBytes.add(bytes);
+    }
+
+    void duplicateSkipped() {
+        DuplicatesSkipped.increment();
+    }
+
+    private Map<String, Double> perStage(ToDoubleFunction<StageStats> value) {
+        var map = new LinkedHashMap<String, Double>();
+        for (var stage : STAGES) {
+            map.put(stage.name(), value.applyAsDouble(Stages[stage.ordinal()]));
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        var map = new LinkedHashMap<String, Long>();
+        for (var stage : STAGES) {
+            map.put(stage.name(), Stages[stage.ordinal()].Count.sum());
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getStageMeanMillis() {
+        return perStage(StageStats::meanMillis);
+    }
+
+    @Override
+    public Map<String, Double> getStageMaxMillis() {
+        return perStage(stats -> stats.MaxNanos.get() / 1e6);
+    }
+
+    @Override
+    public Map<String, long[]> getStageHistograms() {
+        var map = new LinkedHashMap<String, long[]>();
+        for (var stage : STAGES) {
+            map.put(stage.name(), Stages[stage.ordinal()].histogram());
+        }
+        return map;
+    }
+
+    @Override
+    public long[] getHistogramBoundsMicros() {
+        return BOUNDS.clone();
+    }
+
+    @Override
+    public long getPayloadBytes() {
+        return PayloadBytes.sum();
+    }
+
+    @Override
+    public long getImageBytes() {
+        return ImageBytes.sum();
+    }
+
+    @Override
+    public long getDuplicatesSkipped() {
+        return DuplicatesSkipped.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByCause() {
+        var map = new LinkedHashMap<String, Long>();
+        for (var cause : FAILURES) {
+            map.put(cause.name(), Failures[cause.ordinal()].sum());
+        }
+        return map;
+    }
+
+    @Override
+    public void reset() {
+        for (var stage : Stages) {
+            stage.reset();
+        }
+        for (var failure : Failures) {
+            failure.reset();
+        }
+        PayloadBytes.reset();
+        ImageBytes.reset();
+        DuplicatesSkipped.reset();
+    }
+}
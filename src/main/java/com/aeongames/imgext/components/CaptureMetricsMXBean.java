@@ -0,0 +1,82 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.util.Map;
+
+/**
+ * the metrics of the captures. per stage (see
+ * {@link CaptureMetrics.Stage}) and overall. registered on the platform MBean
+ * server by each {@link ImageProcessor} as
+ * {@code com.aeongames.imgext:type=CaptureMetrics,name=<n>}
+ * <br>
+ * the maps are keyed by the name of the stage (or failure cause)
+ *
+ * @author Eduardo Vindas
+ */
+public interface CaptureMetricsMXBean {
+
+    /**
+     * @return the amount of times each stage ran.
+     */
+    Map<String, Long> getStageCounts();
+
+    /**
+     * @return the average time (in milliseconds) of each stage.
+     */
+    Map<String, Double> getStageMeanMillis();
+
+    /**
+     * @return the maximum time (in milliseconds) of each stage.
+     */
+    Map<String, Double> getStageMaxMillis();
+
+    /**
+     * @return the latency histogram of each stage. bucket i counts the runs
+     * that took less than {@link #getHistogramBoundsMicros()}[i] microseconds
+     * (and the last one the rest)
+     */
+    Map<String, long[]> getStageHistograms();
+
+    /**
+     * @return the upper bound (in microseconds, exclusive) of each bucket of
+     * the histograms.
+     */
+    long[] getHistogramBoundsMicros();
+
+    /**
+     * @return the amount of bytes read from the clipboard.
+     */
+    long getPayloadBytes();
+
+    /**
+     * @return the amount of decoded image bytes.
+     */
+    long getImageBytes();
+
+    /**
+     * @return the amount of images that were not recorded because they were
+     * already recorded. (or look like a recorded one)
+     */
+    long getDuplicatesSkipped();
+
+    /**
+     * @return the amount of failed captures per cause.
+     */
+    Map<String, Long> getFailuresByCause();
+
+    /**
+     * resets every metric.
+     */
+    void reset();
+}
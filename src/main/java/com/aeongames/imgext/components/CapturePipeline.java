@@ -0,0 +1,423 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.error.LoggingHelper;
+import com.aeongames.edi.utils.threading.StopSignalProvider;
+import com.aeongames.imgext.components.ImageProcessor.CaptureResult;
+import com.aeongames.imgext.components.ImageProcessor.DecodedCapture;
+import java.awt.datatransfer.Transferable;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * runs the clipboard captures through a set of stages. each stage has a
+ * bounded queue in front and its own amount of workers (virtual threads):
+ * <pre>
+ * ingest (snapshot) -&gt; decode/hash -&gt; persist -&gt; notify
+ * </pre>
+ * the payloads that were recorded recently (see {@link PayloadCache}) skip
+ * the decode and persist stages.
+ * the clipboard thread only takes a snapshot of the payload and queues it. if
+ * a queue is full the stage that feeds it waits (backpressure) so the memory
+ * held by the pipeline is bounded by the queue sizes.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class CapturePipeline {
+
+    /**
+     * how long (in milliseconds) the ingest waits for room on the queue
+     * before checking the stop signal again.
+     */
+    private static final long OFFER_WAIT = 100;
+    /**
+     * the workers stop when interrupted.
+     */
+    private static final StopSignalProvider WORKER_STOP = () -> Thread.currentThread().isInterrupted();
+
+    /**
+     * a copy of the clipboard payload. the pipeline closes the payload once is
+     * decoded (or dropped)
+     *
+     * @param payload the bytes of the text.
+     * @param charset the charset of the text.
+     * @param key the fingerprint of the payload. null if the payload should
+     * not be looked up on (nor remembered by) the payload cache.
+     * @param source the clipboard content the payload was copied from.
+     */
+    record Snapshot(PayloadSpool payload, Charset charset, PayloadCache.Key key, Transferable source) {
+
+    }
+
+    private record Pending(DecodedCapture capture, PayloadRecord record, Transferable source) {
+
+    }
+
+    private record Outcome(DecodedCapture capture, ImageProcessor.Persisted persisted, Transferable source) {
+
+    }
+
+    /**
+     * collects the files of the images of a payload. once the payload is
+     * decoded and all its images are recorded (or found on the save folder)
+     * the payload is remembered. so the next copy of it is not decoded.
+     */
+    private final class PayloadRecord {
+
+        private final PayloadCache.Key Key;
+        private final List<Path> Files = new ArrayList<>();
+        /**
+         * the decoding of the payload plus each image not recorded yet.
+         */
+        private int Pending = 1;
+        private boolean Complete = true;
+
+        PayloadRecord(PayloadCache.Key key) {
+            Key = key;
+        }
+
+        synchronized void add() {
+            Pending++;
+        }
+
+        /**
+         * releases the decoding (if null) or a image of the payload.
+         */
+        void release(ImageProcessor.Persisted persisted) {
+            synchronized (this) {
+                if (Objects.nonNull(persisted)) {
+                    if (Objects.isNull(persisted.file())) {
+                        Complete = false;
+                    } else {
+                        Files.add(persisted.file());
+                    }
+                }
+                if (--Pending > 0 || !Complete || Files.isEmpty()) {
+                    return;
+                }
+            }
+            Processor.rememberPayload(Key, Files);
+        }
+    }
+
+    /**
+     * a queue and the workers that take the items from it.
+     */
+    private final class Stage<T> {
+
+        private final String Name;
+        private final BlockingQueue<T> Queue;
+        private final Consumer<T> Handler;
+        /**
+         * releases the items that are not handled when the stage stops.
+         */
+        private final Consumer<T> OnDrop;
+        private final List<Thread> Workers;
+
+        Stage(String name, int capacity, int workers, Consumer<T> handler, Consumer<T> onDrop) {
+            if (capacity < 1 || workers < 1) {
+                throw new IllegalArgumentException("the capacity and the workers of the stage must be at least 1");
+            }
+            Name = name;
+            Queue = new ArrayBlockingQueue<>(capacity);
+            Handler = handler;
+            OnDrop = onDrop;
+            Workers = new ArrayList<>(workers);
+            var factory = Thread.ofVirtual().name("Capture-" + name + "-", 1).factory();
+            for (int i = 0; i < workers; i++) {
+                Workers.add(factory.newThread(this::work));
+            }
+        }
+
+        void start() {
+            Workers.forEach(Thread::start);
+        }
+
+        /**
+         * queues the item. waits if the queue is full.
+         */
+        void put(T item) throws InterruptedException {
+            Active.incrementAndGet();
+            try {
+                Queue.put(item);
+            } catch (InterruptedException ex) {
+                Active.decrementAndGet();
+                throw ex;
+            }
+        }
+
+        /**
+         * queues the item. waits (up to the timeout) if the queue is full.
+         */
+        boolean offer(T item, long millis) throws InterruptedException {
+            Active.incrementAndGet();
+            if (!Queue.offer(item, millis, TimeUnit.MILLISECONDS)) {
+                Active.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private void work() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    var item = Queue.take();
+                    try {
+                        Handler.accept(item);
+                    } catch (RuntimeException ex) {
+                        LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Capture stage " + Name + " failed", ex);
+                    } finally {
+                        if (Active.decrementAndGet() == 0) {
+                            OnIdle.run();
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                //requested to stop.
+            }
+        }
+
+        /**
+         * stops the workers and drops the items that are still queued.
+         */
+        void stop() throws InterruptedException {
+            Workers.forEach(Thread::interrupt);
+            for (var worker : Workers) {
+                worker.join();
+            }
+            var dropped = new ArrayList<T>();
+            Queue.drainTo(dropped);
+            for (var item : dropped) {
+                OnDrop.accept(item);
+                Active.decrementAndGet();
+            }
+        }
+    }
+
+    private final ImageProcessor Processor;
+    private final Stage<Snapshot> DecodeStage;
+    private final Stage<Pending> PersistStage;
+    private final Stage<Outcome> NotifyStage;
+    /**
+     * the amount of items queued or being handled on any stage.
+     */
+    private final AtomicInteger Active = new AtomicInteger();
+    /**
+     * called once all the queued items are handled.
+     */
+    private final Runnable OnIdle;
+    private final List<ImageProcessor.CaptureListener> Listeners = new ArrayList<>();
+    private boolean Started = false, Closed = false;
+
+    /**
+     * creates a new pipeline.
+     *
+     * @param processor the processor that does the work of each stage.
+     * @param capacity the size of the queue of each stage.
+     * @param decodeWorkers the amount of payloads decoded at the same time.
+     * @param persistWorkers the amount of images recorded at the same time.
+     * @param onIdle called once all the captures are handled.
+     */
+    CapturePipeline(ImageProcessor processor, int capacity, int decodeWorkers, int persistWorkers, Runnable onIdle) {
+        Processor = Objects.requireNonNull(processor, "the processor cannot be null");
+        OnIdle = Objects.requireNonNull(onIdle, "the idle callback cannot be null");
+        DecodeStage = new Stage<>("Decode", capacity, decodeWorkers, this::decode, snapshot -> snapshot.payload().close());
+        PersistStage = new Stage<>("Persist", capacity, persistWorkers, this::persist, pending -> {
+            pending.capture().discard();
+            if (Objects.nonNull(pending.record())) {
+                pending.record().release(new ImageProcessor.Persisted(CaptureResult.STOPPED, null));
+            }
+        });
+        //a single notifier so the UI gets the outcomes in order.
+        NotifyStage = new Stage<>("Notify", capacity, 1, this::publish, outcome -> {
+        });
+    }
+
+    /**
+     * registers a listener that is called (on the notify stage) with the
+     * outcome of each image.
+     *
+     * @param listener the listener.
+     */
+    synchronized void addListener(ImageProcessor.CaptureListener listener) {
+        Listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * queues a snapshot of the clipboard. waits while the pipeline is full
+     * (backpressure) unless the stop signal is received.
+     *
+     * @param snapshot the payload to process.
+     * @param stopProvider the stop signal of the caller.
+     * @return true if queued. false if the pipeline is closed or the caller
+     * was requested to stop.
+     */
+    boolean submit(Snapshot snapshot, StopSignalProvider stopProvider) {
+        synchronized (this) {
+            if (Closed) {
+                return false;
+            }
+            if (!Started) {
+                DecodeStage.start();
+                PersistStage.start();
+                NotifyStage.start();
+                Started = true;
+            }
+        }
+        try {
+            while (!stopProvider.isStopSignalReceived()) {
+                if (DecodeStage.offer(snapshot, OFFER_WAIT)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * @return the amount of items queued or being handled.
+     */
+    int getActive() {
+        return Active.get();
+    }
+
+    /**
+     * stops accepting captures. waits (up to the timeout) for the queued ones
+     * to complete and stops the workers.
+     *
+     * @param timeout the maximum time to wait for the queued captures.
+     * @param unit the unit of the timeout.
+     * @return true if every capture completed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        synchronized (this) {
+            if (Closed) {
+                return true;
+            }
+            Closed = true;
+            if (!Started) {
+                return true;
+            }
+        }
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (Active.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        var completed = Active.get() == 0;
+        DecodeStage.stop();
+        PersistStage.stop();
+        NotifyStage.stop();
+        return completed;
+    }
+
+    private void decode(Snapshot snapshot) {
+        try (var payload = snapshot.payload()) {
+            decode(snapshot, payload);
+        }
+    }
+
+    private void decode(Snapshot snapshot, PayloadSpool payload) {
+        PayloadRecord record = null;
+        if (Objects.nonNull(snapshot.key())) {
+            var files = Processor.recordedPayload(snapshot.key());
+            if (Objects.nonNull(files)) {
+                //the same payload was recorded recently. there is nothing to decode.
+                //a outcome per image. as the first copy of the payload had.
+                for (var file : files) {
+                    var persisted = new ImageProcessor.Persisted(CaptureResult.DUPLICATE, file);
+                    var capture = DecodedCapture.of(CaptureResult.DUPLICATE)
+                            .traced(CaptureEvent.start(payload.length(), snapshot.charset()));
+                    forward(NotifyStage, new Outcome(capture, persisted, snapshot.source()), () -> {
+                    });
+                }
+                return;
+            }
+            record = new PayloadRecord(snapshot.key());
+        }
+        final var payloadRecord = record;
+        try {
+            Processor.decodeStream(payload.openStream(), snapshot.charset(), payload.length(), WORKER_STOP,
+                    capture -> {
+                        if (Objects.nonNull(payloadRecord)) {
+                            payloadRecord.add();
+                        }
+                        forward(PersistStage, new Pending(capture, payloadRecord, snapshot.source()), () -> {
+                            capture.discard();
+                            if (Objects.nonNull(payloadRecord)) {
+                                payloadRecord.release(new ImageProcessor.Persisted(CaptureResult.STOPPED, null));
+                            }
+                        });
+                    });
+        } finally {
+            if (Objects.nonNull(payloadRecord)) {
+                payloadRecord.release(null);
+            }
+        }
+    }
+
+    private void persist(Pending pending) {
+        ImageProcessor.Persisted persisted;
+        try {
+            persisted = Processor.persist(pending.capture());
+        } catch (RuntimeException ex) {
+            //the listeners and the payload record must still hear about the image.
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to record the image", ex);
+            pending.capture().discard();
+            persisted = new ImageProcessor.Persisted(CaptureResult.FAILED, null);
+        }
+        if (Objects.nonNull(pending.record())) {
+            pending.record().release(persisted);
+        }
+        forward(NotifyStage, new Outcome(pending.capture(), persisted, pending.source()), () -> {
+        });
+    }
+
+    private void publish(Outcome outcome) {
+        Processor.notifyOutcome(outcome.capture(), outcome.persisted());
+        List<ImageProcessor.CaptureListener> listeners;
+        synchronized (this) {
+            listeners = List.copyOf(Listeners);
+        }
+        for (var listener : listeners) {
+            listener.captured(outcome.source(), outcome.persisted().result());
+        }
+    }
+
+    /**
+     * moves the item into the next stage. if interrupted while waiting the
+     * item is dropped.
+     */
+    private <T> void forward(Stage<T> next, T item, Runnable onDrop) {
+        try {
+            next.put(item);
+        } catch (InterruptedException ex) {
+            onDrop.run();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.common.ByteUtils;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * what we know about the decoded bytes of a capture to find out if they are
+ * already recorded: the length and the xxHash (the fingerprint) that are
+ * always computed while decoding, and the SHA-256 (the signature) that is
+ * only computed when it is needed. see {@link TieredSignatures}
+ * <br>
+ * the signature is computed from the file that holds the bytes (the temporal
+ * file of the capture and later the recorded file) unless it was provided.
+ * <br>
+ * this class is NOT Sync. it belongs to the stage that handles the capture.
+ *
+ * @author Eduardo Vindas
+ */
+final class CaptureSignature {
+
+    /**
+     * the largest chunk of a file we map at once.
+     */
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+
+    private final long Length;
+    private final long Hash;
+    private byte[] Signature;
+    private Path Source;
+
+    /**
+     * @param length the amount of decoded bytes.
+     * @param hash the xxHash of the decoded bytes.
+     * @param signature the SHA-256 of the decoded bytes. or null if not
+     * computed.
+     * @param source the file that holds the decoded bytes. can be null if
+     * the signature is provided.
+     */
+    CaptureSignature(long length, long hash, byte[] signature, Path source) {
+        if (Objects.isNull(signature) && Objects.isNull(source)) {
+            throw new IllegalArgumentException("either the signature or the source is required");
+        }
+        Length = length;
+        Hash = hash;
+        Signature = signature;
+        Source = source;
+    }
+
+    long getLength() {
+        return Length;
+    }
+
+    /**
+     * @return the key of the fingerprint index.
+     */
+    byte[] getFingerprint() {
+        return SignatureIndex.fingerprintKey(Length, Hash);
+    }
+
+    /**
+     * @return true if the SHA-256 is known (provided or already computed)
+     */
+    boolean hasSignature() {
+        return Objects.nonNull(Signature);
+    }
+
+    /**
+     * provides the SHA-256 of the bytes. computed from the source file on the
+     * first call.
+     *
+     * @param counters where to account the work.
+     * @param digest the SHA-256 digester to use. (from the
+     * {@link CaptureContext} of the caller)
+     * @return the signature.
+     * @throws IOException if unable to read the source.
+     */
+    byte[] getSignature(DedupeCounters counters, MessageDigest digest) throws IOException {
+        if (Objects.isNull(Signature)) {
+            Signature = signatureOf(Source, digest);
+            counters.signed(Length);
+        }
+        return Signature;
+    }
+
+    /**
+     * the bytes moved into another file (for example the recorded file)
+     *
+     * @param source the file that holds the bytes now.
+     */
+    void setSource(Path source) {
+        if (Objects.nonNull(source)) {
+            Source = source;
+        }
+    }
+
+    /**
+     * computes the SHA-256 of the file. the file is mapped on chunks.
+     *
+     * @param file the file to hash.
+     * @param hasher the SHA-256 digester to use. it is reset first.
+     * @return the signature of the file.
+     * @throws IOException if unable to read the file.
+     */
+    static byte[] signatureOf(Path file, MessageDigest hasher) throws IOException {
+        hasher.reset();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                var length = Math.min(MAP_CHUNK, size - position);
+                hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+        }
+        return hasher.digest();
+    }
+
+    /**
+     * @return the signature (if known) or the fingerprint as text.
+     */
+    @Override
+    public String toString() {
+        return hasSignature()
+                ? ByteUtils.byteArrayToString(Signature)
+                : String.format("xxh64:%016x (%d bytes)", Hash, Length);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * the flight recorder (JFR) event of a stage of a capture. (see
+ * {@link CaptureMetrics.Stage}) recorded on the thread that ran the stage. so
+ * it can be lined up with the GC, allocation and file I/O events of the same
+ * thread.
+ *
+ * @author Eduardo Vindas
+ */
+@Name("com.aeongames.imgext.CaptureStage")
+@Label("Capture Stage")
+@Category({"Image Extractor", "Capture"})
+@Description("A stage of the processing of a capture")
+final class CaptureStageEvent extends Event {
+
+    @Label("Stage")
+    String Stage;
+
+    /**
+     * creates and begins the event of a stage. commit it once the stage is
+     * done.
+     *
+     * @param stage the stage.
+     * @return the event.
+     */
+    static CaptureStageEvent start(CaptureMetrics.Stage stage) {
+        var event = new CaptureStageEvent();
+        event.Stage = stage.name();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * how the images were read: only the header (probed), subsampled (for the
+ * perceptual hash or the preview) or the full raster. and how many were over
+ * the pixel budget. (see {@link ImageProcessor#setPixelBudget})
+ * <br>
+ * a image over the budget is read subsampled so its raster fits the budget.
+ * or is not decoded at all if it needs its full raster. (to be re-encoded)
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+public final class DecodeCounters {
+
+    private final AtomicLong Probed = new AtomicLong();
+    private final AtomicLong Subsampled = new AtomicLong();
+    private final AtomicLong Full = new AtomicLong();
+    private final AtomicLong OverBudget = new AtomicLong();
+    private final AtomicLong PixelsDecoded = new AtomicLong();
+
+    void probed() {
+        Probed.incrementAndGet();
+    }
+
+    /**
+     * a image was decoded.
+     *
+     * @param subsampled true if the raster was subsampled.
+     * @param pixels the amount of pixels of the raster.
+     */
+    void decoded(boolean subsampled, long pixels) {
+        (subsampled ? Subsampled : Full).incrementAndGet();
+        PixelsDecoded.addAndGet(pixels);
+    }
+
+    void overBudget() {
+        OverBudget.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of images validated from the header only.
+     */
+    public long getProbed() {
+        return Probed.get();
+    }
+
+    public long getSubsampled() {
+        return Subsampled.get();
+    }
+
+    public long getFull() {
+        return Full.get();
+    }
+
+    /**
+     * @return the amount of images over the pixel budget.
+     */
+    public long getOverBudget() {
+        return OverBudget.get();
+    }
+
+    /**
+     * @return the amount of pixels of every raster decoded.
+     */
+    public long getPixelsDecoded() {
+        return PixelsDecoded.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d probed, %d subsampled, %d full decodes (%d pixels), %d over budget",
+                getProbed(), getSubsampled(), getFull(), getPixelsDecoded(), getOverBudget());
+    }
+}
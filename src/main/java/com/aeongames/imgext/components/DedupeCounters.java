@@ -0,0 +1,125 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the hits and misses of each tier of the duplicate check (see
+ * {@link TieredSignatures}) and the amount of SHA-256 work done (and saved).
+ * <br>
+ * the payload tier: a hit means the raw clipboard payload was recorded
+ * recently and it was not decoded at all. see {@link PayloadCache}
+ * <br>
+ * the fingerprint tier: a miss means the data is new and no SHA-256 is
+ * needed. a hit sends the capture to the signature tier. where a hit is a
+ * confirmed duplicate and a miss is a fingerprint collision. (different data
+ * with the same length and xxHash)
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+public final class DedupeCounters {
+
+    private final AtomicLong PayloadHits = new AtomicLong();
+    private final AtomicLong PayloadMisses = new AtomicLong();
+    private final AtomicLong FingerprintHits = new AtomicLong();
+    private final AtomicLong FingerprintMisses = new AtomicLong();
+    private final AtomicLong SignatureHits = new AtomicLong();
+    private final AtomicLong SignatureMisses = new AtomicLong();
+    private final AtomicLong SignaturesComputed = new AtomicLong();
+    private final AtomicLong BytesSigned = new AtomicLong();
+    private final AtomicLong BytesNotSigned = new AtomicLong();
+
+    void payload(boolean hit) {
+        (hit ? PayloadHits : PayloadMisses).incrementAndGet();
+    }
+
+    void fingerprint(boolean hit) {
+        (hit ? FingerprintHits : FingerprintMisses).incrementAndGet();
+    }
+
+    void signature(boolean hit) {
+        (hit ? SignatureHits : SignatureMisses).incrementAndGet();
+    }
+
+    /**
+     * a SHA-256 was computed over the provided amount of bytes.
+     */
+    void signed(long bytes) {
+        SignaturesComputed.incrementAndGet();
+        BytesSigned.addAndGet(bytes);
+    }
+
+    /**
+     * a capture was recorded without computing its SHA-256.
+     */
+    void notSigned(long bytes) {
+        BytesNotSigned.addAndGet(bytes);
+    }
+
+    public long getPayloadHits() {
+        return PayloadHits.get();
+    }
+
+    public long getPayloadMisses() {
+        return PayloadMisses.get();
+    }
+
+    public long getFingerprintHits() {
+        return FingerprintHits.get();
+    }
+
+    public long getFingerprintMisses() {
+        return FingerprintMisses.get();
+    }
+
+    public long getSignatureHits() {
+        return SignatureHits.get();
+    }
+
+    public long getSignatureMisses() {
+        return SignatureMisses.get();
+    }
+
+    /**
+     * @return the amount of SHA-256 computed. (of captures and of the
+     * recorded files they were compared against)
+     */
+    public long getSignaturesComputed() {
+        return SignaturesComputed.get();
+    }
+
+    /**
+     * @return the amount of bytes hashed with SHA-256.
+     */
+    public long getBytesSigned() {
+        return BytesSigned.get();
+    }
+
+    /**
+     * @return the amount of bytes of recorded captures that were never hashed
+     * with SHA-256. (the work saved by the fingerprint tier)
+     */
+    public long getBytesNotSigned() {
+        return BytesNotSigned.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("payload %d hits / %d misses, fingerprint %d hits / %d misses, SHA-256 %d hits / %d misses, %d SHA-256 computed over %d bytes, %d bytes not hashed",
+                getPayloadHits(), getPayloadMisses(), getFingerprintHits(), getFingerprintMisses(), getSignatureHits(), getSignatureMisses(),
+                getSignaturesComputed(), getBytesSigned(), getBytesNotSigned());
+    }
+}
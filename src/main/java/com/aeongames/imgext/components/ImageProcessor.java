@@ -14,34 +14,57 @@ package com.aeongames.imgext.components;
 
 import com.aeongames.edi.utils.datatransfer.DataTransferException;
 import com.aeongames.edi.utils.common.CharsetCompatibilityChecker;
+import com.aeongames.edi.utils.common.CharsetProfile;
+import com.aeongames.edi.utils.common.DataUriScanner;
+import com.aeongames.edi.utils.common.HammingIndex;
 import com.aeongames.edi.utils.datatransfer.FlavorProcessor;
 import com.aeongames.edi.utils.threading.StopSignalProvider;
-import com.aeongames.edi.utils.common.ByteUtils;
+import com.aeongames.edi.utils.common.Base64DecodingInputStream;
 import com.aeongames.edi.utils.common.SkipInputStream;
+import com.aeongames.edi.utils.common.TeeInputStream;
+import com.aeongames.edi.utils.common.XxHash64;
 import com.aeongames.edi.utils.error.LoggingHelper;
+import com.aeongames.edi.utils.file.Properties_File;
+import com.aeongames.edi.utils.visual.ImageFormat;
+import com.aeongames.edi.utils.visual.PerceptualHash;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.image.BufferedImage;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.PushbackInputStream;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CoderResult;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CheckedInputStream;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * this class will work as an FlavorProcessor that will handle data that comes
@@ -56,33 +79,265 @@ import javax.imageio.ImageIO;
 public class ImageProcessor implements FlavorProcessor {
 
     private static final int PUSHBACK_BUFFER = 4096;
-    private static final int METADATA_CHUNK = 32;
     public static final String FILEPATTERN = "%04d.%s";//#### it. 1-> "0001.x" where x is jpg, png etc ;
-    private HashMap<String, String> SignaturesFile;
+    private static final String PART_SUFFIX = ".part";
+    /**
+     * how many numbers we try to record a file into before giving up. (when
+     * other writers take them first)
+     */
+    private static final int MAX_COMMIT_ATTEMPTS = 8;
+    private static final int DEFAULT_SIMILARITY_THRESHOLD = 6;
+    private static final String NEAR_DUPLICATE_SETTING = "NearDuplicates";
+    private static final String SIMILARITY_SETTING = "SimilarityThreshold";
+    private static final String QUEUE_SETTING = "CaptureQueue";
+    private static final String DECODE_WORKERS_SETTING = "DecodeWorkers";
+    private static final String PERSIST_WORKERS_SETTING = "PersistWorkers";
+    private static final String PAYLOAD_CACHE_SETTING = "PayloadCache";
+    private static final String PIXEL_BUDGET_SETTING = "PixelBudget";
+    private static final int DEFAULT_QUEUE = 4;
+    /**
+     * several persist workers so the writer can group their fsyncs.
+     */
+    private static final int DEFAULT_PERSIST_WORKERS = 4;
+    private static final int DEFAULT_PAYLOAD_CACHE = 64;
+    /**
+     * the default maximum amount of pixels of a decoded raster. (about 160MB
+     * of ARGB)
+     */
+    private static final int DEFAULT_PIXEL_BUDGET = 40_000_000;
+    /**
+     * how long (in seconds) we wait for the queued captures on shutdown.
+     */
+    private static final long SHUTDOWN_WAIT = 30;
+
+    /**
+     * what to do with captures that are not a exact copy of a recorded file,
+     * but look the same (re-encoded, scaled or a different JPEG quality)
+     */
+    public enum NearDuplicatePolicy {
+        /**
+         * we don't check for near duplicates.
+         */
+        DISABLED,
+        /**
+         * the near duplicate is reported but saved anyway.
+         */
+        REPORT,
+        /**
+         * the near duplicate is reported and NOT saved.
+         */
+        SKIP;
+    }
+
+    /**
+     * the outcome of processing a payload.
+     */
+    public enum CaptureResult {
+        /**
+         * the image was recorded into a new file.
+         */
+        SAVED,
+        /**
+         * the exact same data is already recorded.
+         */
+        DUPLICATE,
+        /**
+         * the image looks like a image already recorded and was skipped.
+         */
+        NEAR_DUPLICATE,
+        /**
+         * the payload does not represent a image (or its charset cannot carry
+         * Base64)
+         */
+        NOT_AN_IMAGE,
+        /**
+         * the processing was requested to stop.
+         */
+        STOPPED,
+        /**
+         * there was a error reading or recording the data.
+         */
+        FAILED;
+
+        /**
+         * @return true if the payload was handled. (recorded now or before)
+         */
+        public boolean isHandled() {
+            return this == SAVED || this == DUPLICATE || this == NEAR_DUPLICATE;
+        }
+    }
+    /**
+     * the persistent indexes of the fingerprints and signatures already
+     * recorded on the save folder. swapped when the save folder changes.
+     */
+    private volatile TieredSignatures Signatures;
+    /**
+     * held (read) by each persist while it uses the indexes. the indexes are
+     * only swapped (and the old ones closed) once the persists are done with
+     * them. (write)
+     */
+    private final ReentrantReadWriteLock IndexLock = new ReentrantReadWriteLock();
+    /**
+     * the hits and misses of each tier of the duplicate check.
+     */
+    private final DedupeCounters Dedupe = new DedupeCounters();
+    /**
+     * how the images were read.
+     */
+    private final DecodeCounters Decoding = new DecodeCounters();
+    /**
+     * the fsync batches and latency of the files recorded.
+     */
+    private final WriteCounters Writes = new WriteCounters();
+    /**
+     * syncs and moves the recorded files into place.
+     */
+    private final AtomicFileWriter Writer = new AtomicFileWriter(Writes);
+    /**
+     * the time of each stage, the bytes and the failures of the captures.
+     */
+    private final CaptureMetrics Metrics = new CaptureMetrics();
+    /**
+     * the name the metrics are registered with. null if not registered.
+     */
+    private ObjectName MetricsName;
+    /**
+     * tells apart the metrics of each processor.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    /**
+     * the maximum amount of pixels of a decoded raster.
+     */
+    private volatile long PixelBudget;
+    /**
+     * the recent clipboard payloads that are already recorded.
+     */
+    private final PayloadCache Payloads;
+    /**
+     * the job that seeds the fingerprint index with the files that are
+     * already on the save folder.
+     */
+    private volatile SaveFolderIndexer FolderIndexer;
     private static final DataFlavor[] PROCESSORFLAVOR = new DataFlavor[]{DataFlavor.getTextPlainUnicodeFlavor()};
-    private final MessageDigest Hasher;
     private ProgressObject InfoLink;
+    /**
+     * whenever or not we record the decoded bytes as they come from the
+     * clipboard (pass through) instead of decoding and re-encoding the image.
+     */
+    private volatile boolean PassThroughSave = true;
+    /**
+     * the perceptual hashes of the images recorded on the current save folder.
+     */
+    private final HammingIndex<String> PerceptualIndex = new HammingIndex<>();
+    /**
+     * what to do when a capture looks like a image we already recorded.
+     */
+    private volatile NearDuplicatePolicy NearDuplicates = NearDuplicatePolicy.REPORT;
+    /**
+     * the maximum amount of bits 2 perceptual hashes can differ to consider
+     * the images to be the same.
+     */
+    private volatile int SimilarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+    /**
+     * the stages the clipboard captures run through. so the clipboard thread
+     * is released as soon as the payload is copied.
+     */
+    private final CapturePipeline Pipeline;
+    /**
+     * decodes the previews of the recorded images off the pipeline.
+     */
+    private final PreviewDecoder Previews;
 
     /**
      * default class constructor.
      *
-     * @param safePath
      * @exception NoSuchAlgorithmException if we cannot initialize the Message
      * Digester.
      */
     public ImageProcessor() throws NoSuchAlgorithmException {
-        InfoLink = new ProgressObject();
-        RegisterForPathChanges();
-        SignaturesFile = new HashMap<>();
-        MessageDigest resultHasher = null;
+        this(new ProgressObject());
+    }
+
+    /**
+     * creates a new processor that reports into (and takes its settings from)
+     * the provided ProgressObject.
+     *
+     * @param infoLink the ProgressObject to use.
+     * @exception NoSuchAlgorithmException if we cannot initialize the Message
+     * Digester.
+     */
+    public ImageProcessor(ProgressObject infoLink) throws NoSuchAlgorithmException {
+        InfoLink = Objects.requireNonNull(infoLink, "the ProgressObject cannot be null");
         try {
-            resultHasher = MessageDigest.getInstance("SHA-256");
+            //each capture takes its digester from the CaptureContext pool. checked before anything starts.
+            CaptureContext.prepare();
         } catch (NoSuchAlgorithmException ex) {
             LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
             // rethrow the error we cannot work without a hasher.
             throw ex;
         }
-        Hasher = resultHasher;
+        Payloads = new PayloadCache(intSetting(PAYLOAD_CACHE_SETTING, DEFAULT_PAYLOAD_CACHE));
+        PixelBudget = intSetting(PIXEL_BUDGET_SETTING, DEFAULT_PIXEL_BUDGET);
+        Previews = new PreviewDecoder(InfoLink, this::Report, this::subsamplingFor);
+        //so the first capture does not pay for the charset checks.
+        CharsetProfile.prewarm();
+        RegisterForPathChanges();
+        loadNearDuplicateSettings();
+        if (Objects.nonNull(InfoLink.getSaveFilePath())) {
+            openSignatureIndex(InfoLink.getSaveFilePath());
+        }
+        Pipeline = new CapturePipeline(this, intSetting(QUEUE_SETTING, DEFAULT_QUEUE),
+                intSetting(DECODE_WORKERS_SETTING, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                intSetting(PERSIST_WORKERS_SETTING, DEFAULT_PERSIST_WORKERS), () -> UIStatus(true));
+        InfoLink.setSettingsSaveObserver(new Properties_File.WriteObserver() {
+            @Override
+            public Object writing() {
+                return CaptureStageEvent.start(CaptureMetrics.Stage.SETTINGS_SAVE);
+            }
+
+            @Override
+            public void written(Object state, long nanos) {
+                ((CaptureStageEvent) state).commit();
+                Metrics.record(CaptureMetrics.Stage.SETTINGS_SAVE, nanos);
+            }
+        });
+        registerMetrics();
+    }
+
+    /**
+     * registers the metrics on the platform MBean server. so they can be read
+     * with JConsole, VisualVM or any JMX client.
+     */
+    private void registerMetrics() {
+        try {
+            var name = new ObjectName("com.aeongames.imgext:type=CaptureMetrics,name=" + INSTANCES.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(Metrics, name);
+            MetricsName = name;
+        } catch (JMException | RuntimeException ex) {
+            //the metrics are still recorded. just not visible to JMX.
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to register the capture metrics", ex);
+        }
+    }
+
+    /**
+     * reads a positive number from the settings file.
+     *
+     * @return the value or the default if not set or invalid.
+     */
+    private int intSetting(String key, int defaultValue) {
+        var value = InfoLink.getSetting(key);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        try {
+            var parsed = Integer.parseInt(value.strip());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ex) {
+        }
+        LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Invalid value for {0}: {1}", new Object[]{key, value});
+        return defaultValue;
     }
 
     public synchronized boolean updateSafePath(Path safePath) {
@@ -92,6 +347,143 @@ public class ImageProcessor implements FlavorProcessor {
         return InfoLink.setSavingFilePath(safePath);
     }
 
+    /**
+     * sets whenever or not the image data is recorded "as is" (the decoded
+     * Base64 bytes are streamed into the file while they are hashed) or the
+     * image is decoded and re-encoded with {@link ImageIO#write}. pass through
+     * is the default as it keeps the original quality and the checksum matches
+     * the file on disk.
+     *
+     * @param passThrough true to record the original bytes. false to re-encode
+     */
+    public void setPassThroughSave(boolean passThrough) {
+        PassThroughSave = passThrough;
+    }
+
+    /**
+     * @return true if the data is recorded as it comes from the clipboard.
+     */
+    public boolean isPassThroughSave() {
+        return PassThroughSave;
+    }
+
+    /**
+     * sets the maximum amount of pixels a decoded raster can have. the size of
+     * each image is read from its header before is decoded. images over the
+     * budget are decoded subsampled (for the perceptual hash and the preview)
+     * and the ones that need their full raster (to be re-encoded) are not
+     * recorded.
+     *
+     * @param pixels the budget. at least 1.
+     */
+    public void setPixelBudget(long pixels) {
+        if (pixels < 1) {
+            throw new IllegalArgumentException("the pixel budget must be at least 1");
+        }
+        PixelBudget = pixels;
+    }
+
+    /**
+     * @return the maximum amount of pixels of a decoded raster.
+     */
+    public long getPixelBudget() {
+        return PixelBudget;
+    }
+
+    /**
+     * sets what to do with captures that look like a image that was already
+     * recorded.
+     *
+     * @param policy the policy to use.
+     */
+    public void setNearDuplicatePolicy(NearDuplicatePolicy policy) {
+        NearDuplicates = Objects.requireNonNull(policy, "the policy cannot be null");
+    }
+
+    /**
+     * @return the current near duplicate policy.
+     */
+    public NearDuplicatePolicy getNearDuplicatePolicy() {
+        return NearDuplicates;
+    }
+
+    /**
+     * sets how many bits (out of 64) can differ between the perceptual hash of
+     * 2 images to consider them the same image.
+     *
+     * @param bits the threshold. (0 to 64)
+     */
+    public void setSimilarityThreshold(int bits) {
+        if (bits < 0 || bits > Long.SIZE) {
+            throw new IllegalArgumentException("the threshold must be between 0 and 64");
+        }
+        SimilarityThreshold = bits;
+    }
+
+    /**
+     * @return the current similarity threshold.
+     */
+    public int getSimilarityThreshold() {
+        return SimilarityThreshold;
+    }
+
+    /**
+     * reads the near duplicate settings (if any) from the settings file.
+     */
+    private void loadNearDuplicateSettings() {
+        var policy = InfoLink.getSetting(NEAR_DUPLICATE_SETTING);
+        var threshold = InfoLink.getSetting(SIMILARITY_SETTING);
+        try {
+            if (Objects.nonNull(policy)) {
+                setNearDuplicatePolicy(NearDuplicatePolicy.valueOf(policy.strip().toUpperCase()));
+            }
+            if (Objects.nonNull(threshold)) {
+                setSimilarityThreshold(Integer.parseInt(threshold.strip()));
+            }
+        } catch (IllegalArgumentException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Invalid near duplicate settings", ex);
+        }
+    }
+
+    /**
+     * is told the outcome of each image captured from the clipboard. along
+     * with the clipboard content it came from.
+     */
+    @FunctionalInterface
+    public interface CaptureListener {
+
+        /**
+         * @param source the content provided to
+         * {@link ImageProcessor#handleFlavor}
+         * @param result the outcome of a image of the content. (a content can
+         * hold several images)
+         */
+        void captured(Transferable source, CaptureResult result);
+    }
+
+    /**
+     * registers a listener that is called with the outcome of each image
+     * captured from the clipboard. the listener is called from the pipeline
+     * threads (not the EDT)
+     *
+     * @param listener the listener.
+     */
+    public void addCaptureListener(Consumer<CaptureResult> listener) {
+        Objects.requireNonNull(listener);
+        Pipeline.addListener((source, result) -> listener.accept(result));
+    }
+
+    /**
+     * registers a listener that is called with the outcome of each image
+     * captured from the clipboard and the content it came from. the listener
+     * is called from the pipeline threads (not the EDT)
+     *
+     * @param listener the listener.
+     */
+    public void addCaptureListener(CaptureListener listener) {
+        Pipeline.addListener(listener);
+    }
+
     /**
      * returns the supported DataFlavor for this class.
      *
@@ -159,7 +551,139 @@ public class ImageProcessor implements FlavorProcessor {
         return TrasferableDataStream;
     }
 
-    private PushbackInputStream processMetadata(Charset charset, InputStream TrasferableDataStream, StringBuilder TypeBuilder) {
+    /**
+     * the result of checking the start of a payload.
+     *
+     * @param stream the payload. nothing is consumed from it.
+     * @param rawBase64 true if the payload is only Base64 data (no data URI).
+     * otherwise the payload is text that might hold data URIs.
+     */
+    private record Metadata(PushbackInputStream stream, boolean rawBase64) {
+
+    }
+
+    /**
+     * how much of the image {@link #readImageFromStream} decodes.
+     */
+    private enum ReadMode {
+        /**
+         * only the header. (format and dimensions) the pixels are not decoded.
+         */
+        PROBE,
+        /**
+         * a subsampled raster. large enough for the perceptual hash.
+         */
+        HASH,
+        /**
+         * the full raster.
+         */
+        FULL
+    }
+
+    /**
+     * the image read from the data.
+     *
+     * @param image the decoded raster. null if only probed. (and subsampled if
+     * read for the hash)
+     * @param width the width of the image.
+     * @param height the height of the image.
+     */
+    private record ReadImage(BufferedImage image, int width, int height) {
+
+    }
+
+    /**
+     * adds the time spent reading the Base64 stream into the context. the
+     * Base64 text is decoded as the image reader pulls the bytes. so this is
+     * how the Base64 decoding is told apart from the image decoding.
+     */
+    private static final class Base64Timer extends FilterInputStream {
+
+        private final CaptureContext Context;
+
+        Base64Timer(InputStream decoded, CaptureContext context) {
+            super(decoded);
+            Context = context;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                Context.addBase64Nanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var start = System.nanoTime();
+            try {
+                return in.read(b, off, len);
+            } finally {
+                Context.addBase64Nanos(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * a image that was decoded and hashed but is not recorded yet. or the
+     * early outcome of a payload that cannot be recorded.
+     *
+     * @param early the outcome if the capture cannot be recorded. null
+     * otherwise.
+     * @param partFile the temporal file with the decoded bytes. null if the
+     * image is re-encoded.
+     * @param image the decoded image. null if the pixels were not decoded.
+     * (the bytes are recorded as they are)
+     * @param signature the fingerprint (and maybe the signature) of the
+     * decoded bytes.
+     * @param perceptual the perceptual hash of the image.
+     * @param extension the file extension to record the image with.
+     * @param event the flight recorder event of the capture. committed once
+     * the outcome is known. null if none.
+     */
+    record DecodedCapture(CaptureResult early, Path partFile, BufferedImage image,
+            CaptureSignature signature, long perceptual, String extension, CaptureEvent event) {
+
+        static DecodedCapture of(CaptureResult early) {
+            return new DecodedCapture(Objects.requireNonNull(early), null, null, null, 0, null, null);
+        }
+
+        /**
+         * @return this capture with the provided flight recorder event.
+         */
+        DecodedCapture traced(CaptureEvent event) {
+            return new DecodedCapture(early, partFile, image, signature, perceptual, extension, event);
+        }
+
+        /**
+         * removes the temporal file (if still there)
+         */
+        void discard() {
+            if (Objects.nonNull(partFile)) {
+                try {
+                    Files.deleteIfExists(partFile);
+                } catch (IOException ex) {
+                    LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to remove " + partFile, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * the outcome of recording a image.
+     *
+     * @param result the outcome.
+     * @param file the file that holds the image. (the new file or the one
+     * that already had it) null if none or unknown.
+     */
+    record Persisted(CaptureResult result, Path file) {
+
+    }
+
+    private Metadata processMetadata(Charset charset, InputStream TrasferableDataStream, CaptureContext context) {
         // Now we need to manually process the data. this is because we want to do
         // several things with the data.
         // first
@@ -181,54 +705,31 @@ public class ImageProcessor implements FlavorProcessor {
         // it expect single byte characters. (e.g., UTF-8) or more specifically, ASCII.
         // (0x00-0x7F) on our case 0x41 is the letter A.
         // now you might think, but all of them are the same value
-        var encoder = charset.newEncoder();
-        var decoder = charset.newDecoder();
-        var minBytesPerChar = (int) Math.floor(encoder.averageBytesPerChar());
+        var decoder = context.getDecoder(charset);
+        var minBytesPerChar = CharsetProfile.of(charset).stride();
         PushbackInputStream pushbackStream = new PushbackInputStream(TrasferableDataStream, PUSHBACK_BUFFER);
         try {
-            byte[] buffer = new byte[minBytesPerChar * METADATA_CHUNK]; // Read a small chunk for analysis
-            int bytesRead = pushbackStream.read(buffer);
+            byte[] buffer = context.getMetadataBytes(); // Read a small chunk for analysis
+            int bytesRead = pushbackStream.read(buffer, 0, minBytesPerChar * CaptureContext.METADATA_CHARS);
             if (bytesRead == -1) {
                 Report("Clipboard Data is shorter than expected or not avail");
-                UIStatus(true);
                 pushbackStream.close();
                 return null;
             }
             // Step 2: Decode the bytes using the specified charset
             Report("Decoding Metadata from the Clipboard initial chunk");
             ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
-            CharBuffer charBuffer = CharBuffer.allocate(METADATA_CHUNK); // Allocate enough space for characters
+            CharBuffer charBuffer = context.getMetadataChars(); // enough space for the characters
             CoderResult result = decoder.decode(byteBuffer, charBuffer, true);
             charBuffer.flip(); // Prepare the CharBuffer for reading
-            String header = charBuffer.toString().strip();
+            String header = charBuffer.toString().replace("\uFEFF", "").strip();
             charBuffer.clear();
             Report("Data Header: " + header);
             // data:image/jpeg;base64,iVBORw0KGgoAAAANSUhEUgAA...
-            if (header.startsWith("data:image/")) {
-                int lastCharofHeader = header.indexOf(",");
-                var imageType = header.substring(11, lastCharofHeader);
-                InfoLink.setImageTypeString(imageType);
-                imageType = SimpleImageType(imageType);
-                if (Objects.isNull(imageType)) {
-                    Report("Image String Data does not Report its type. we will asume is base64");
-                } else {
-                    TypeBuilder.append(imageType);
-                }
-                header = header.substring(lastCharofHeader + 1); // Extract the Base64 part
-                // Step 4: Push back the remaining bytes
-                int remainingBytes = byteBuffer.remaining(); // Bytes not yet decoded
-                if (remainingBytes > 0) {
-                    pushbackStream.unread(buffer, bytesRead - remainingBytes, remainingBytes);
-                }
-                // now return the non header part back to the stream.
-                if (header.length() > 0) {
-                    pushbackStream.unread(header.getBytes(charset));
-                }
-            } else {
-                pushbackStream.unread(buffer);
-                // the data did not match return all the data to the Stream
-            }
-            return pushbackStream;
+            // the header (if any) and the data URIs are handled by the scanner.
+            // so we return all the data to the Stream.
+            pushbackStream.unread(buffer, 0, bytesRead);
+            return new Metadata(pushbackStream, isRawBase64(header));
         } catch (IOException ex) {
             try {
                 pushbackStream.close();
@@ -236,16 +737,31 @@ public class ImageProcessor implements FlavorProcessor {
             }
             LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
             reportError(ex);
-            UIStatus(true);
             return null;
         }
     }
 
-    private DigestInputStream getWrappedStream(PushbackInputStream pushbackStream, Charset charEncoding) {
-        Hasher.reset();// ensure we are starting fresh.
-        var digestStream = SkipInputStream.getWrappedStream(pushbackStream, charEncoding, Hasher);
-        digestStream.on(true);
-        return digestStream;
+    /**
+     * @return true if the text is made only of Base64 characters.
+     */
+    private static boolean isRawBase64(String header) {
+        if (header.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < header.length(); i++) {
+            var c = header.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9')
+                    && c != '+' && c != '/' && c != '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private InputStream getWrappedStream(PushbackInputStream pushbackStream, Charset charEncoding,
+            CaptureContext context) {
+        context.beginImage(null);// ensure we are starting fresh.
+        return Base64DecodingInputStream.wrap(pushbackStream, charEncoding);
     }
 
     /**
@@ -271,10 +787,18 @@ public class ImageProcessor implements FlavorProcessor {
         if (!isThisForUs(flavor, stopProvider)) {
             return false;
         }
+        var started = System.nanoTime();
         //if we cant open the clipboard data. throw DataTransferException so caller retry
         //to get the clipboard data. as we should not do that here. 
-        InputStream TrasferableDataStream = OpenClipboard(transferData, flavor);
+        InputStream TrasferableDataStream;
+        try {
+            TrasferableDataStream = OpenClipboard(transferData, flavor);
+        } catch (DataTransferException ex) {
+            Metrics.failure(CaptureMetrics.Failure.CLIPBOARD);
+            throw ex;
+        }
         if (Objects.isNull(TrasferableDataStream)) {
+            Metrics.failure(CaptureMetrics.Failure.CLIPBOARD);
             reportFailure("Could Not Read The Clipboard");
             return false;
         }
@@ -287,105 +811,711 @@ public class ImageProcessor implements FlavorProcessor {
             }
             return false;
         }
-        var charEncoding = Charset.forName(flavor.getParameter("charset")); // try to get what charset we are using.
-        StringBuilder TypeBuilder = new StringBuilder();
-        PushbackInputStream pushbackStream = processMetadata(charEncoding, TrasferableDataStream, TypeBuilder);
-        if (Objects.isNull(pushbackStream)) {
-            reportFailure("Could Not Read the metadata");
+        try {
+            var charEncoding = Charset.forName(flavor.getParameter("charset")); // try to get what charset we are using.
+            //the clipboard might change once we return. so we copy the payload
+            //and let the pipeline do the rest.
+            Report("Taking a snapshot of the Clipboard data");
+            //the payload is fingerprinted while is read. so repeated payloads can skip the decoding.
+            var hasher = new XxHash64();
+            var payload = PayloadSpool.of(new CheckedInputStream(TrasferableDataStream, hasher));
+            var snapshot = new CapturePipeline.Snapshot(payload, charEncoding,
+                    PayloadCache.Key.of(payload, hasher.getValue(), charEncoding), transferData);
+            Metrics.recordSince(CaptureMetrics.Stage.CLIPBOARD_OPEN, started);
+            Metrics.payloadBytes(payload.length());
+            if (!Pipeline.submit(snapshot, stopProvider)) {
+                payload.close();
+                reportFailure("The capture was not queued");
+                return false;
+            }
+            Report(String.format("Queued %d bytes for processing%s", payload.length(),
+                    payload.isSpilled() ? " (spooled to disk)" : ""));
+            return true;
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to read the Clipboard data", ex);
+            Metrics.failure(CaptureMetrics.Failure.CLIPBOARD);
+            reportError(ex);
+            reportFailure("Could Not Read The Clipboard");
             return false;
+        } catch (UnsupportedCharsetException | IllegalCharsetNameException ex) {
+            //the flavor names a charset we do not know.
+            Metrics.failure(CaptureMetrics.Failure.NOT_AN_IMAGE);
+            reportFailure("Unsupported charset: " + flavor.getParameter("charset"));
+            return false;
+        } finally {
+            try {
+                TrasferableDataStream.close();
+            } catch (IOException ex) {
+                LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
+                reportError(ex);
+            }
         }
-        try (pushbackStream) {
+    }
+
+    /**
+     * process a payload of text that (might) represent images encoded on
+     * Base64. the payload can be Base64 data or text that holds any amount of
+     * data URIs. (HTML, Markdown, JSON...) each image is decoded, checked for
+     * duplicates and recorded on the save folder. as it is found. this is the
+     * same processing done for the clipboard data. but it can be used for any
+     * source. this method can be called concurrently.
+     * <br>
+     * the caller is responsible to close the stream.
+     *
+     * @param payload the stream that provides the text.
+     * @param charEncoding the charset of the text.
+     * @param stopProvider a functional interface that should be used to check
+     * if this function should stop processing data and return.
+     * @return the outcome for each image found. or a single result if no image
+     * was found or the payload could not be processed.
+     */
+    public List<CaptureResult> processStream(InputStream payload, Charset charEncoding, StopSignalProvider stopProvider) {
+        var results = new ArrayList<CaptureResult>();
+        decodeStream(payload, charEncoding, -1, stopProvider, capture -> {
+            var persisted = persist(capture);
+            notifyOutcome(capture, persisted);
+            results.add(persisted.result());
+        });
+        UIStatus(true);
+        return results;
+    }
+
+    /**
+     * the decode stage: checks the payload, decodes and hashes each image on
+     * it and provides them to the sink as they are found. the images are NOT
+     * recorded here. see {@link #persist(DecodedCapture)}
+     *
+     * each capture provided carries its flight recorder event. (see
+     * {@link CaptureEvent}) which spans from the end of the previous image of
+     * the payload (or the start of the payload) until its outcome is known.
+     *
+     * @param payload the stream that provides the text.
+     * @param charEncoding the charset of the text.
+     * @param payloadSize the size of the payload. -1 if unknown.
+     * @param stopProvider the stop signal provider.
+     * @param sink receives each image. (or a single early result if the
+     * payload has no images or cannot be processed)
+     */
+    void decodeStream(InputStream payload, Charset charEncoding, long payloadSize, StopSignalProvider stopProvider,
+            Consumer<DecodedCapture> sink) {
+        Report("Testing Base64 Decoding");
+        if (!CharsetCompatibilityChecker.charsetCompatibleWithBase64(charEncoding)) {
+            Report("Charset is NOT compatible with Base64");
+            sink.accept(DecodedCapture.of(CaptureResult.NOT_AN_IMAGE)
+                    .traced(CaptureEvent.start(payloadSize, charEncoding)));
+            return;
+        }
+        try (var context = CaptureContext.acquire()) {
+            context.setEvent(CaptureEvent.start(payloadSize, charEncoding));
+            decodeStream(payload, charEncoding, stopProvider, capture -> {
+                var event = context.getEvent();
+                //the next image of the payload (if any) starts now.
+                context.setEvent(CaptureEvent.start(payloadSize, charEncoding));
+                sink.accept(capture.traced(event));
+            }, context);
+        }
+    }
+
+    private void decodeStream(InputStream payload, Charset charEncoding, StopSignalProvider stopProvider,
+            Consumer<DecodedCapture> sink, CaptureContext context) {
+        var started = System.nanoTime();
+        var stage = CaptureStageEvent.start(CaptureMetrics.Stage.METADATA);
+        var metadata = processMetadata(charEncoding, payload, context);
+        stage.commit();
+        Metrics.recordSince(CaptureMetrics.Stage.METADATA, started);
+        if (Objects.isNull(metadata)) {
+            Metrics.failure(CaptureMetrics.Failure.METADATA);
+            Report("Could Not Read the metadata");
+            sink.accept(DecodedCapture.of(CaptureResult.FAILED));
+            return;
+        }
+        //we dont close the pushback stream. as that would close the payload.
+        try {
             Report("Finish With Metadata Check");
-            if (shouldStop(stopProvider)) {
-                return false;
+            if (stopProvider.isStopSignalReceived()) {
+                sink.accept(DecodedCapture.of(CaptureResult.STOPPED));
+                return;
             }
-            Report("Testing Base64 Decoding");
-            if (!CharsetCompatibilityChecker.charsetCompatibleWithBase64(charEncoding)) {
-                Report("Charset is NOT compatible with Base64");
-                UIStatus(true);
-                return false;
+            if (metadata.rawBase64()) {
+                Report("Image String Data does not Report its type. we will asume is base64");
+                var decoded = getWrappedStream(metadata.stream(), charEncoding, context);
+                sink.accept(decodeImage(decoded, context, stopProvider));
+                return;
             }
-            Report("Charset is compatible with Base64, setting up to Read Image");
-            DigestInputStream digestStream = getWrappedStream(pushbackStream, charEncoding);
-            Report("Reading the Image...");
-            StringBuilder type = new StringBuilder();
-            var image = readImageFromStream(digestStream, type);
-            getImageTypeFinal(TypeBuilder, type);//this might return a empty string? but is so image would be null most likely.
-            if (Objects.nonNull(image)) {
-                Report(image);
+            decodeDataUris(metadata.stream(), charEncoding, stopProvider, sink, context);
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
+            Metrics.failure(CaptureMetrics.Failure.DECODE);
+            reportError(ex);
+            sink.accept(DecodedCapture.of(CaptureResult.FAILED));
+        }
+    }
+
+    /**
+     * scans the text for data URIs and decodes each image as it is found.
+     */
+    private void decodeDataUris(PushbackInputStream stream, Charset charEncoding,
+            StopSignalProvider stopProvider, Consumer<DecodedCapture> sink, CaptureContext context) throws IOException {
+        var scanner = new DataUriScanner(new SkipInputStream(stream, charEncoding));
+        DataUriScanner.DataUri dataUri;
+        while (Objects.nonNull(dataUri = scanner.next())) {
+            if (stopProvider.isStopSignalReceived()) {
+                sink.accept(DecodedCapture.of(CaptureResult.STOPPED));
+                return;
             }
-            if (shouldStop(stopProvider)) {
-                return false;
+            Report(String.format("Found a %s image at %d", dataUri.getMediaType(), dataUri.getOffset()));
+            InfoLink.setImageTypeString(dataUri.getImageType());
+            context.beginImage(SimpleImageType(dataUri.getImageType()));
+            DecodedCapture capture;
+            try {
+                capture = decodeImage(new Base64DecodingInputStream(dataUri.getPayload()), context, stopProvider);
+            } catch (IOException ex) {
+                //a broken image should not stop us from reading the rest.
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to process the image at " + dataUri.getOffset(), ex);
+                Metrics.failure(CaptureMetrics.Failure.DECODE);
+                reportError(ex);
+                capture = DecodedCapture.of(CaptureResult.FAILED);
             }
-            if (image != null) {
-                Report("Calculating Checksum");
-                var signature = ByteUtils.byteArrayToString(digestStream.getMessageDigest().digest());
-                if (SignaturesFile.containsKey(signature)) {
-                    reportCheckSum(signature, SignaturesFile.get(signature));
-                    Report("File Alredy Recorded.");
-                    UIStatus(true);
-                    return true;// we dont need to safe it. again.
-                }
-                final Path FilePath = GetNextFile(TypeBuilder.toString());
-                reportCheckSum(signature, FilePath.toString());
-                var imgResult = ImageIO.write(image, TypeBuilder.toString(),
-                        Files.newOutputStream(FilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
-                if (imgResult) {
-                    Report("File saved.");
-                    //we only report the signature if we sucesfully recorded the file. 
-                    SignaturesFile.put(signature, FilePath.toString());
+            sink.accept(capture);
+        }
+        if (scanner.getFound() == 0) {
+            Report("The data does not seem to represent a Image.");
+            sink.accept(DecodedCapture.of(CaptureResult.NOT_AN_IMAGE));
+        } else {
+            Report(String.format("Decoded %d images", scanner.getFound()));
+        }
+    }
+
+    /**
+     * reads the image from the decoded stream and calculates its fingerprint.
+     * when recording the data as is (see {@link #setPassThroughSave}) the
+     * decoded bytes are copied into a temporal file on the save folder while
+     * the image is read. the image reader is only used to validate the data. so
+     * only the header is read (and the pixels are not decoded) unless the
+     * perceptual hash is needed. in which case a subsampled raster is decoded.
+     * the preview is decoded from the file once recorded. once the image is
+     * read we drain the rest of the data so the file and the checksum
+     * represent the complete payload.
+     * <br>
+     * the SHA-256 is only computed here when the image is re-encoded. as the
+     * decoded bytes are not kept. otherwise it is computed from the temporal
+     * file if (and only if) the duplicate check needs it.
+     *
+     * @param decoded the stream that provides the decoded data
+     * @param context the context of the capture. holds the type reported by
+     * the metadata.
+     * @param stopProvider the stop signal provider.
+     * @return the decoded image. or a early result if it is not a image.
+     * @throws IOException if unable to read the data.
+     */
+    private DecodedCapture decodeImage(InputStream decoded, CaptureContext context,
+            StopSignalProvider stopProvider) throws IOException {
+        var fingerprint = context.getFingerprint();
+        InputStream hashedStream = new CheckedInputStream(new Base64Timer(decoded, context), fingerprint);
+        Path partFile = null;
+        if (PassThroughSave) {
+            var saveFolder = InfoLink.getSaveFilePath();
+            if (Objects.isNull(saveFolder)) {
+                Metrics.failure(CaptureMetrics.Failure.WRITE);
+                Report("There is no Save Folder set.");
+                return DecodedCapture.of(CaptureResult.FAILED);
+            }
+            partFile = AtomicFileWriter.createPart(saveFolder, "capture", PART_SUFFIX);
+        } else {
+            hashedStream = new DigestInputStream(hashedStream, context.getDigest());
+        }
+        var mode = Objects.isNull(partFile) ? ReadMode.FULL
+                : NearDuplicates == NearDuplicatePolicy.DISABLED ? ReadMode.PROBE : ReadMode.HASH;
+        try {
+            ReadImage image;
+            Report("Reading the Image...");
+            var readStart = System.nanoTime();
+            var stage = CaptureStageEvent.start(CaptureMetrics.Stage.IMAGE_DECODE);
+            if (Objects.nonNull(partFile)) {
+                try (var partOut = AtomicFileWriter.openPart(partFile)) {
+                    var tee = new TeeInputStream(hashedStream, partOut);
+                    image = readImageFromStream(tee, context, mode);
+                    if (Objects.nonNull(image) && !stopProvider.isStopSignalReceived()) {
+                        //the reader might stop before the end of the data. read the rest.
+                        tee.drain();
+                        tee.flushSink();
+                    }
                 }
-                tickFileSpinner();
-                UIStatus(true);
-                return imgResult;
             } else {
+                image = readImageFromStream(hashedStream, context, mode);
+                if (Objects.nonNull(image)) {
+                    //the reader might stop before the end of the data. read the rest.
+                    hashedStream.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+            stage.commit();
+            var base64Nanos = context.getBase64Nanos();
+            Metrics.record(CaptureMetrics.Stage.BASE64_DECODE, base64Nanos);
+            Metrics.record(CaptureMetrics.Stage.IMAGE_DECODE, System.nanoTime() - readStart - base64Nanos);
+            var finalType = getImageTypeFinal(context);//this might be "No Image data" but is so image would be null.
+            if (Objects.isNull(image)) {
                 Report("No image data. flushing the Checksum");
-                Hasher.reset();// flush the data we dont need it. 
+                context.beginImage(null);
+                return DecodedCapture.of(CaptureResult.NOT_AN_IMAGE);
+            }
+            if (mode == ReadMode.FULL && Objects.isNull(image.image())) {
+                Metrics.failure(CaptureMetrics.Failure.OVER_BUDGET);
+                Report(String.format("The image is %dx%d. too large to be re-encoded within the pixel budget (%d)",
+                        image.width(), image.height(), PixelBudget));
+                return DecodedCapture.of(CaptureResult.FAILED);
+            }
+            if (stopProvider.isStopSignalReceived()) {
+                return DecodedCapture.of(CaptureResult.STOPPED);
+            }
+            Report(String.format("The image is %dx%d", image.width(), image.height()));
+            Metrics.imageBytes(fingerprint.getLength());
+            var event = context.getEvent();
+            event.Format = context.getFileExtension();
+            event.Width = image.width();
+            event.Height = image.height();
+            Report("Calculating Checksum");
+            var hashStart = System.nanoTime();
+            stage = CaptureStageEvent.start(CaptureMetrics.Stage.HASHING);
+            byte[] rawSignature = null;
+            if (Objects.isNull(partFile)) {
+                rawSignature = context.getDigest().digest();
+                Dedupe.signed(fingerprint.getLength());
+            }
+            var signature = new CaptureSignature(fingerprint.getLength(), fingerprint.getValue(), rawSignature, partFile);
+            var perceptual = Objects.nonNull(image.image()) ? PerceptualHash.dHash(image.image()) : 0;
+            stage.commit();
+            Metrics.recordSince(CaptureMetrics.Stage.HASHING, hashStart);
+            //the bytes recorded as they are MUST use the extension of the actual format.
+            var extension = Objects.nonNull(partFile) ? context.getFileExtension() : finalType;
+            //a subsampled raster is only good for the hash.
+            var raster = mode == ReadMode.FULL ? image.image() : null;
+            var capture = new DecodedCapture(null, partFile, raster, signature, perceptual, extension, null);
+            partFile = null;//owned by the capture now.
+            return capture;
+        } finally {
+            if (Objects.nonNull(partFile)) {
+                Files.deleteIfExists(partFile);
+            }
+        }
+    }
+
+    /**
+     * the persist stage: checks the decoded image against the recorded ones
+     * and records it (unless is already recorded) the temporal file of the
+     * capture (if any) is always removed or moved into place.
+     *
+     * @param capture the decoded image.
+     * @return the outcome of the processing and the file that holds the
+     * image.
+     */
+    Persisted persist(DecodedCapture capture) {
+        if (Objects.nonNull(capture.early())) {
+            return new Persisted(capture.early(), null);
+        }
+        //the digester (for the signatures) comes from the pool as well.
+        var context = CaptureContext.acquire();
+        IndexLock.readLock().lock();
+        try {
+            var lookupStart = System.nanoTime();
+            var stage = CaptureStageEvent.start(CaptureMetrics.Stage.DEDUPE_LOOKUP);
+            var recorded = recordedFileFor(capture.signature(), context.getDigest());
+            if (Objects.nonNull(recorded)) {
+                stage.commit();
+                Metrics.recordSince(CaptureMetrics.Stage.DEDUPE_LOOKUP, lookupStart);
+                reportCheckSum(capture.signature().toString(), recorded);
+                Report("File Alredy Recorded.");
+                return new Persisted(CaptureResult.DUPLICATE, Path.of(recorded));// we dont need to safe it. again.
+            }
+            var nearDuplicate = isNearDuplicate(capture.perceptual());
+            stage.commit();
+            Metrics.recordSince(CaptureMetrics.Stage.DEDUPE_LOOKUP, lookupStart);
+            if (nearDuplicate) {
+                return new Persisted(CaptureResult.NEAR_DUPLICATE, null);
             }
+            Path FilePath = GetNextFile(capture.extension());
+            reportCheckSum(capture.signature().toString(), FilePath.toString());
+            var writeStart = System.nanoTime();
+            stage = CaptureStageEvent.start(CaptureMetrics.Stage.FILE_WRITE);
+            var partFile = capture.partFile();
+            if (Objects.isNull(partFile)) {
+                //the file only gets its name once is complete.
+                partFile = AtomicFileWriter.createPart(FilePath.getParent(), "capture", PART_SUFFIX);
+                boolean imgResult;
+                try (var fileOut = AtomicFileWriter.openPart(partFile)) {
+                    imgResult = ImageIO.write(capture.image(), capture.extension(), fileOut);
+                }
+                if (!imgResult) {
+                    Metrics.failure(CaptureMetrics.Failure.WRITE);
+                    Report("No writer for the image type " + capture.extension());
+                    Files.deleteIfExists(partFile);
+                    return new Persisted(CaptureResult.FAILED, null);
+                }
+            }
+            FilePath = commitFile(partFile, FilePath, capture.extension());
+            stage.commit();
+            Metrics.recordSince(CaptureMetrics.Stage.FILE_WRITE, writeStart);
+            if (Objects.nonNull(capture.partFile())) {
+                capture.signature().setSource(FilePath);
+            }
+            Report("File saved.");
+            //a similar image might have been saved by another worker meanwhile.
+            if (!recordPerceptual(capture.perceptual(), FilePath)) {
+                Files.deleteIfExists(FilePath);
+                return new Persisted(CaptureResult.NEAR_DUPLICATE, null);
+            }
+            //we only report the signature if we sucesfully recorded the file.
+            if (!recordSignature(capture.signature(), FilePath, context.getDigest())) {
+                Files.deleteIfExists(FilePath);
+                PerceptualIndex.remove(capture.perceptual(), FilePath.toString());
+                return new Persisted(CaptureResult.DUPLICATE, null);
+            }
+            return new Persisted(CaptureResult.SAVED, FilePath);
         } catch (IOException ex) {
-            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to record the image", ex);
+            Metrics.failure(CaptureMetrics.Failure.WRITE);
             reportError(ex);
-            UIStatus(true);
-            return false;
+            return new Persisted(CaptureResult.FAILED, null);
         } finally {
+            IndexLock.readLock().unlock();
+            context.close();
+            capture.discard();
+        }
+    }
+
+    /**
+     * syncs the part file and moves it into place. waits until is done. if
+     * another writer (for example another processor on the same folder) took
+     * the file meanwhile the next free number is used.
+     *
+     * @param imageType the extension of the file.
+     * @return the file the data was recorded into.
+     * @throws IOException if the file could not be committed. (the part file
+     * is removed)
+     */
+    private Path commitFile(Path partFile, Path file, String imageType) throws IOException {
+        for (int attempt = 1;; attempt++) {
             try {
-                if (Objects.nonNull(TrasferableDataStream)) {
-                    TrasferableDataStream.close();
+                Writer.commit(partFile, file).join();
+                return file;
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof FileAlreadyExistsException exists) {
+                    if (attempt < MAX_COMMIT_ATTEMPTS) {
+                        Report(String.format("%s was recorded by another writer meanwhile.", file));
+                        file = GetNextFile(imageType);
+                        continue;
+                    }
+                    Files.deleteIfExists(partFile);
+                    throw exists;
                 }
-            } catch (IOException ex) {
-                LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, null, ex);
-                reportError(ex);
+                if (ex.getCause() instanceof IOException ioe) {
+                    throw ioe;
+                }
+                throw new IOException("Unable to commit " + file, ex.getCause());
             }
         }
-        UIStatus(true);
-        return false;
     }
 
-    private synchronized Path GetNextFile(String imageType) {
-        var nextfile = InfoLink.getFileNumber();
-        var FilePath = InfoLink.getSaveFilePath().resolve(String.format(FILEPATTERN, nextfile, imageType));
-        return FilePath;
+    /**
+     * checks if the payload was recorded recently. (as is) if so the payload
+     * does not need to be decoded.
+     *
+     * @param key the fingerprint of the raw payload.
+     * @return the files that hold the images of the payload or null if the
+     * payload is not known.
+     */
+    List<Path> recordedPayload(PayloadCache.Key key) {
+        var files = Payloads.lookup(key);
+        Dedupe.payload(Objects.nonNull(files));
+        if (Objects.isNull(files)) {
+            return null;
+        }
+        for (var file : files) {
+            reportCheckSum(key.toString(), file.toString());
+        }
+        Report("File Alredy Recorded.");
+        return files;
+    }
+
+    /**
+     * remembers the files that hold the images of a payload.
+     *
+     * @param key the fingerprint of the raw payload.
+     * @param files the files that hold its images.
+     */
+    void rememberPayload(PayloadCache.Key key, List<Path> files) {
+        Payloads.put(key, files);
+    }
+
+    /**
+     * the notify stage: provides the preview of the image to the UI. if the
+     * image was not decoded (see {@link ReadMode#PROBE}) the preview is decoded
+     * (subsampled to the panel) from the file that holds the image. only if
+     * there is a panel to show it. see {@link PreviewDecoder}
+     * <br>
+     * the flight recorder event of the capture is committed here. as is the
+     * moment its outcome is known.
+     *
+     * @param capture the decoded image.
+     * @param persisted the outcome of the processing.
+     */
+    void notifyOutcome(DecodedCapture capture, Persisted persisted) {
+        if (Objects.nonNull(capture.event())) {
+            capture.event().Outcome = persisted.result().name();
+            capture.event().commit();
+        }
+        switch (persisted.result()) {
+            case DUPLICATE, NEAR_DUPLICATE ->
+                Metrics.duplicateSkipped();
+            case NOT_AN_IMAGE ->
+                Metrics.failure(CaptureMetrics.Failure.NOT_AN_IMAGE);
+            case STOPPED ->
+                Metrics.failure(CaptureMetrics.Failure.STOPPED);
+            default -> {
+                //the causes of FAILED are recorded where they happen.
+            }
+        }
+        if (Objects.nonNull(capture.image())) {
+            Report(capture.image());
+            return;
+        }
+        if (Objects.nonNull(persisted.file()) && InfoLink.isImageBound()) {
+            Previews.request(persisted.file());
+        }
     }
 
-    private synchronized void tickFileSpinner() {
-        InfoLink.fileNumberpplus();
+    /**
+     * reserves the next file number and returns the file to record into.
+     * numbers that are already taken on the folder are skipped.
+     */
+    private Path GetNextFile(String imageType) {
+        var folder = InfoLink.getSaveFilePath();
+        Path FilePath;
+        do {
+            FilePath = folder.resolve(String.format(FILEPATTERN, InfoLink.reserveFileNumber(), imageType));
+        } while (Files.exists(FilePath));
+        return FilePath;
     }
 
     private void RegisterForPathChanges() {
         InfoLink.registerSavingFilePath((Source, newValue) -> {
             updateSafePath(newValue);
+            openSignatureIndex(newValue);
         });
     }
 
+    /**
+     * opens the signature index that lives on the provided folder and closes
+     * the previous one (if any).
+     *
+     * @param folder the save folder.
+     */
+    private synchronized void openSignatureIndex(Path folder) {
+        var previous = Signatures;
+        if (Objects.nonNull(previous) && previous.getFolder().equals(folder)) {
+            return;
+        }
+        //wait for the persists that use the previous indexes.
+        IndexLock.writeLock().lock();
+        try {
+            Signatures = null;
+            PerceptualIndex.clear();
+            Payloads.clear();
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+        if (Objects.nonNull(FolderIndexer)) {
+            FolderIndexer.cancel();
+            FolderIndexer = null;
+        }
+        if (Objects.nonNull(previous)) {
+            try {
+                previous.close();
+            } catch (IOException ex) {
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, null, ex);
+            }
+        }
+        if (Objects.isNull(folder) || !Files.isDirectory(folder) || !Files.isWritable(folder)) {
+            return;
+        }
+        try {
+            Signatures = TieredSignatures.open(folder, Dedupe);
+            Report(String.format("Signature index loaded with %d entries", Signatures.size()));
+            //leave room for the captures while we index the previous ones.
+            var parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            FolderIndexer = new SaveFolderIndexer(Signatures.getFingerprints(), this::Report, parallelism);
+            FolderIndexer.start();
+            Thread.ofVirtual().name("Capture-PartSweeper").start(() -> {
+                var removed = AtomicFileWriter.sweepParts(folder, "capture*" + PART_SUFFIX);
+                if (removed > 0) {
+                    Report(String.format("Removed %d incomplete files left on %s", removed, folder));
+                }
+            });
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to open the signature index", ex);
+            reportError(ex);
+        }
+    }
+
+    /**
+     * checks the indexes for the data of the capture. the fingerprint first
+     * and the signature only if the fingerprint is recorded.
+     *
+     * @param signature the fingerprint (and maybe the signature) of the data.
+     * @param digest the digester to compute the signature with.
+     * @return the file that holds the same data or null if not recorded.
+     * @throws IOException if unable to compute the signature.
+     */
+    private String recordedFileFor(CaptureSignature signature, MessageDigest digest) throws IOException {
+        var index = Signatures;
+        if (Objects.isNull(index)) {
+            return null;
+        }
+        var indexer = FolderIndexer;
+        var name = index.findRecorded(signature, Objects.isNull(indexer) || !indexer.isRunning(), digest);
+        return Objects.isNull(name) ? null : index.getFolder().resolve(name).toString();
+    }
+
+    /**
+     * checks if the image looks like a image that was already recorded.
+     * before the file is written. (the final check is done as it is recorded.
+     * see {@link #recordPerceptual(long, Path)})
+     *
+     * @param perceptual the perceptual hash of the image.
+     * @return true if the capture should NOT be recorded.
+     */
+    private boolean isNearDuplicate(long perceptual) {
+        var policy = NearDuplicates;
+        if (policy == NearDuplicatePolicy.DISABLED) {
+            return false;
+        }
+        var match = PerceptualIndex.findNearest(perceptual, SimilarityThreshold);
+        if (Objects.isNull(match)) {
+            return false;
+        }
+        Report(String.format("The image looks like %s (%d bits apart)", match.value(), match.distance()));
+        if (policy == NearDuplicatePolicy.SKIP) {
+            Report("Near duplicate. the file will not be recorded.");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * records the perceptual hash of a newly saved file. when near duplicates
+     * are skipped the lookup and the record are a single step. (see
+     * {@link HammingIndex#findNearestOrAdd}) so of 2 similar images saved at
+     * the same time only one is kept.
+     *
+     * @param perceptual the perceptual hash of the image.
+     * @param file the file the image was saved into.
+     * @return false if the file should be removed. (a near duplicate)
+     */
+    private boolean recordPerceptual(long perceptual, Path file) {
+        var policy = NearDuplicates;
+        if (policy == NearDuplicatePolicy.DISABLED) {
+            return true;
+        }
+        if (policy != NearDuplicatePolicy.SKIP) {
+            PerceptualIndex.add(perceptual, file.toString());
+            return true;
+        }
+        var match = PerceptualIndex.findNearestOrAdd(perceptual, SimilarityThreshold, file.toString());
+        if (Objects.isNull(match)) {
+            return true;
+        }
+        Report(String.format("The image looks like %s (%d bits apart)", match.value(), match.distance()));
+        Report("Near duplicate. the file will not be recorded.");
+        return false;
+    }
+
+    /**
+     * records the fingerprint (and signature if known) of a newly saved file
+     * into the indexes.
+     *
+     * @param signature the fingerprint (and maybe the signature) of the data.
+     * @param file the file that holds the data.
+     * @param digest the digester to compute the signature with.
+     * @return false if (concurrently) another file recorded the same
+     * signature first. thus the file is a duplicate.
+     */
+    private boolean recordSignature(CaptureSignature signature, Path file, MessageDigest digest) {
+        var index = Signatures;
+        if (Objects.isNull(index)) {
+            Report("There is no signature index. the file will not be tracked for duplicates.");
+            return true;
+        }
+        try {
+            var recorded = index.record(signature, file.getFileName().toString(), digest);
+            if (Objects.nonNull(recorded)) {
+                Report(String.format("The same data was recorded on %s meanwhile.", recorded));
+                return false;
+            }
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to record the signature", ex);
+            reportError(ex);
+        }
+        return true;
+    }
+
     private boolean mySupportedFlavorSupport(DataFlavor flavor) {
+        //any charset. the ones that cannot carry Base64 are rejected once read.
         for (DataFlavor dataFlavor : mySupportedFlavor()) {
-            if (dataFlavor != null && dataFlavor.equals(flavor)) {
+            if (dataFlavor != null && dataFlavor.isMimeTypeEqual(flavor)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * stops the save folder indexer and closes the signature index. the
+     * processor will not check for duplicates until a save folder is set
+     * again. the pending setting changes are recorded.
+     */
+    public void shutdown() {
+        try {
+            if (!Pipeline.close(SHUTDOWN_WAIT, TimeUnit.SECONDS)) {
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "The pending captures did not complete on time");
+            }
+            if (!Writer.close(SHUTDOWN_WAIT, TimeUnit.SECONDS)) {
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "The pending files were not recorded on time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        Previews.close();
+        openSignatureIndex(null);
+        InfoLink.flushSettings();
+        unregisterMetrics();
+    }
+
+    private synchronized void unregisterMetrics() {
+        if (Objects.isNull(MetricsName)) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(MetricsName);
+        } catch (JMException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to unregister the capture metrics", ex);
+        }
+        MetricsName = null;
+    }
+
+    /**
+     * @return the hits and misses of each tier of the duplicate check.
+     */
+    public DedupeCounters getDedupeCounters() {
+        return Dedupe;
+    }
+
+    /**
+     * @return the time of each stage, the bytes and the failures of the
+     * captures. (the same metrics registered on JMX)
+     */
+    public CaptureMetricsMXBean getCaptureMetrics() {
+        return Metrics;
+    }
+
     public ProgressObject getInfoLink() {
         return InfoLink;
     }
@@ -422,32 +1552,126 @@ public class ImageProcessor implements FlavorProcessor {
         InfoLink.setImageData(image);
     }
 
-    private BufferedImage readImageFromStream(DigestInputStream digestStream, StringBuilder type) throws IOException {
-        BufferedImage img = null;
-        var iis = ImageIO.createImageInputStream(digestStream);
-        var readers = ImageIO.getImageReaders(iis);
-        if (readers.hasNext()) {
-            var reader = readers.next();
-            type.append(reader.getFormatName());
-            reader.setInput(iis, true);
-            img = reader.read(0);
+    /**
+     * reads the image from the stream. the format is determined from the
+     * first bytes of the data. so data that is not a image (of a format we
+     * know) is rejected without probing the ImageIO readers. the reader of the
+     * format is taken from (and reset into) the context.
+     *
+     * @param mode how much of the image is decoded.
+     * @return the image or null if the data is not a image we can read.
+     */
+    private ReadImage readImageFromStream(InputStream imageStream, CaptureContext context, ReadMode mode) throws IOException {
+        var head = context.getSignatureBytes();
+        var pushback = new PushbackInputStream(imageStream, head.length);
+        var read = pushback.readNBytes(head, 0, head.length);
+        pushback.unread(head, 0, read);
+        var format = ImageFormat.sniff(head, read);
+        if (Objects.isNull(format)) {
+            return null;
+        }
+        var reader = context.getReader(format);
+        if (Objects.isNull(reader)) {
+            Report("There is no reader for " + format.getFormatName() + " images");
+            return null;
+        }
+        context.setReaderType(format.getFormatName());
+        //the data is already on memory (or on its way to the part file) no need to cache it on disk.
+        try (var iis = new MemoryCacheImageInputStream(pushback)) {
+            reader.setInput(iis, true, true);
+            //the header is enough to validate the data and to get the dimensions.
+            int width = reader.getWidth(0), height = reader.getHeight(0);
+            var image = switch (mode) {
+                case PROBE -> {
+                    Decoding.probed();
+                    yield null;
+                }
+                case HASH -> {
+                    var period = subsamplingFor(width, height, PerceptualHash.subsamplingFor(width, height));
+                    var param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(period, period, 0, 0);
+                    var raster = reader.read(0, param);
+                    Decoding.decoded(true, (long) raster.getWidth() * raster.getHeight());
+                    yield raster;
+                }
+                case FULL -> {
+                    if ((long) width * height > PixelBudget) {
+                        //do not even try. it can take the whole heap.
+                        Decoding.overBudget();
+                        yield null;
+                    }
+                    var raster = reader.read(0);
+                    Decoding.decoded(false, (long) width * height);
+                    yield raster;
+                }
+            };
+            return new ReadImage(image, width, height);
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * determines the subsampling to decode a image with. so its raster fits
+     * the pixel budget. the memory needed is bounded by the budget and not
+     * by the size of the image.
+     *
+     * @param width the width of the image.
+     * @param height the height of the image.
+     * @param wanted the subsampling the caller needs. (or more)
+     * @return the subsampling period for both axis.
+     */
+    int subsamplingFor(int width, int height, int wanted) {
+        var budget = PixelBudget;
+        var period = Math.max(1, wanted);
+        if (ceilDiv(width, period) * ceilDiv(height, period) <= budget) {
+            return period;
+        }
+        Decoding.overBudget();
+        period = Math.max(period, (int) Math.ceil(Math.sqrt((double) width * height / budget)));
+        while (ceilDiv(width, period) * ceilDiv(height, period) > budget) {
+            period++;
         }
-        return img;
+        return period;
+    }
+
+    private static long ceilDiv(int value, int period) {
+        return (value + (long) period - 1) / period;
+    }
+
+    /**
+     * @return the work of the file writer.
+     */
+    public WriteCounters getWriteCounters() {
+        return Writes;
     }
 
-    private void getImageTypeFinal(StringBuilder TypeBuilder, StringBuilder type) {
-        if (TypeBuilder.isEmpty() || TypeBuilder.toString().strip().isBlank()) {
+    /**
+     * @return how the images were read.
+     */
+    public DecodeCounters getDecodeCounters() {
+        return Decoding;
+    }
+
+    /**
+     * @return the type reported by the metadata. or (if none) the type the
+     * reader detected.
+     */
+    private String getImageTypeFinal(CaptureContext context) {
+        if (context.getMetadataType().isBlank()) {
             Report("Image String Metadata does not report the format or type. we assume Base64 full file");
-            TypeBuilder.append(type);
-            if (TypeBuilder.isEmpty() || TypeBuilder.toString().strip().isBlank()) {
-                TypeBuilder.append("No Image data");
+            var type = context.getReaderType();
+            if (type.isBlank()) {
+                type = "No Image data";
                 Report("The data does not seem to represent a Image.");
             } else {
-                Report("Image Type from Metadata: " + type.toString());
+                Report("Image Type from Metadata: " + type);
                 Report("Completed Reading the Image...");
             }
-            InfoLink.setImageTypeString(TypeBuilder.toString());
+            context.setMetadataType(type);
+            InfoLink.setImageTypeString(type);
         }
+        return context.getMetadataType();
     }
 
 }
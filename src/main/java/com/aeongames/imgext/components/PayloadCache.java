@@ -0,0 +1,131 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * a small LRU cache of the (raw, still encoded) clipboard payloads whose
+ * images are all recorded on the save folder. so when the same payload is
+ * copied again we can tell it is already recorded without decoding it.
+ * <br>
+ * the payloads are identified by a {@link Key}: the length, a sample of the
+ * head and the tail, and the xxHash of the bytes. (taken while the payload is
+ * read from the clipboard)
+ * <br>
+ * the cache only describes the current save folder. it must be cleared when
+ * the folder changes. an entry is dropped if any of its files is removed.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class PayloadCache {
+
+    /**
+     * the fingerprint of a raw payload.
+     *
+     * @param length the amount of bytes.
+     * @param head the first 8 bytes. (or less)
+     * @param tail the last 8 bytes. (or less)
+     * @param hash the xxHash of the bytes.
+     * @param charset the charset of the text.
+     */
+    record Key(long length, long head, long tail, long hash, Charset charset) {
+
+        /**
+         * @param payload the payload.
+         * @param hash the xxHash of the bytes.
+         * @param charset the charset of the text.
+         * @return the key of the payload.
+         */
+        static Key of(PayloadSpool payload, long hash, Charset charset) {
+            var sample = Math.min(Long.BYTES, payload.length());
+            return new Key(payload.length(), sample(payload, 0, sample),
+                    sample(payload, payload.length() - sample, sample), hash, charset);
+        }
+
+        private static long sample(PayloadSpool payload, int offset, int length) {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (payload.get(offset + i) & 0xFF);
+            }
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("payload xxh64:%016x (%d bytes)", hash, length);
+        }
+    }
+
+    private final Map<Key, List<Path>> Entries;
+
+    /**
+     * @param capacity the maximum amount of payloads remembered.
+     */
+    PayloadCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the capacity must be at least 1");
+        }
+        Entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Path>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * looks for the payload.
+     *
+     * @param key the payload.
+     * @return the files that hold the images of the payload. or null if not
+     * known (or any of the files is gone)
+     */
+    synchronized List<Path> lookup(Key key) {
+        var files = Entries.get(key);
+        if (Objects.isNull(files)) {
+            return null;
+        }
+        for (var file : files) {
+            if (!Files.isRegularFile(file)) {
+                Entries.remove(key);
+                return null;
+            }
+        }
+        return files;
+    }
+
+    /**
+     * remembers the files that hold the images of the payload.
+     *
+     * @param key the payload.
+     * @param files the files. at least one.
+     */
+    synchronized void put(Key key, List<Path> files) {
+        if (!files.isEmpty()) {
+            Entries.put(Objects.requireNonNull(key), List.copyOf(files));
+        }
+    }
+
+    synchronized void clear() {
+        Entries.clear();
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.error.LoggingHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * a copy of a payload that can be read as many times as needed. (so the
+ * source, the clipboard, is only read once)
+ * <br>
+ * small payloads are kept on a heap buffer taken from a pool. the payload is
+ * read into the smallest buffer ({@link #MIN_BUFFER}) and moved into a larger
+ * one (4 times the size) each time it fills, up to {@link #THRESHOLD}.
+ * payloads larger than that spill into a temporal file that is memory mapped.
+ * so a text copy holds a small buffer and the heap used by the payloads that
+ * wait on the pipeline is bounded.
+ * <br>
+ * the spool must be closed once is no longer needed. that returns the buffer
+ * to the pool or removes the temporal file.
+ * <br>
+ * this class is Sync. (each stream it provides is not)
+ *
+ * @author Eduardo Vindas
+ */
+final class PayloadSpool implements AutoCloseable {
+
+    /**
+     * the size of the smallest heap buffer.
+     */
+    static final int MIN_BUFFER = 64 * 1024;
+    /**
+     * the size of the largest heap buffer. larger payloads spill to disk.
+     */
+    static final int THRESHOLD = 4 * 1024 * 1024;
+    /**
+     * the maximum amount of idle bytes kept on each pool. (2 of the largest
+     * buffers, more of the smaller ones)
+     */
+    private static final int MAX_IDLE_BYTES = 2 * THRESHOLD;
+    /**
+     * a pool per buffer size. from {@link #MIN_BUFFER} to {@link #THRESHOLD}
+     */
+    private static final Pool[] POOLS;
+
+    static {
+        var pools = new ArrayList<Pool>();
+        for (int size = MIN_BUFFER; size <= THRESHOLD; size *= 4) {
+            pools.add(new Pool(size, MAX_IDLE_BYTES / size));
+        }
+        POOLS = pools.toArray(Pool[]::new);
+    }
+
+    /**
+     * the idle buffers of a size.
+     */
+    private static final class Pool {
+
+        private final int Size;
+        private final int MaxIdle;
+        private final ConcurrentLinkedQueue<byte[]> Idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger IdleCount = new AtomicInteger();
+
+        Pool(int size, int maxIdle) {
+            Size = size;
+            MaxIdle = maxIdle;
+        }
+
+        byte[] take() {
+            var buffer = Idle.poll();
+            if (Objects.isNull(buffer)) {
+                return new byte[Size];
+            }
+            IdleCount.decrementAndGet();
+            return buffer;
+        }
+
+        void release(byte[] buffer) {
+            if (IdleCount.incrementAndGet() <= MaxIdle) {
+                Idle.offer(buffer);
+            } else {
+                IdleCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * the heap buffer. null if spilled (or closed)
+     */
+    private byte[] Buffer;
+    private final ByteBuffer Data;
+    private final Path SpillFile;
+    private boolean Closed = false;
+
+    private PayloadSpool(byte[] buffer, ByteBuffer data, Path spillFile) {
+        Buffer = buffer;
+        Data = data.asReadOnlyBuffer();
+        SpillFile = spillFile;
+    }
+
+    /**
+     * reads the stream until its end into a new spool. the stream is not
+     * closed.
+     *
+     * @param source the stream to read.
+     * @return the spool.
+     * @throws IOException if unable to read the stream or to spill the data.
+     */
+    static PayloadSpool of(InputStream source) throws IOException {
+        int level = 0;
+        var buffer = POOLS[level].take();
+        var length = source.readNBytes(buffer, 0, buffer.length);
+        while (length == buffer.length) {
+            //might be exactly the size of the buffer.
+            var next = source.read();
+            if (next < 0) {
+                break;
+            }
+            if (level == POOLS.length - 1) {
+                try {
+                    return spill(buffer, next, source);
+                } finally {
+                    release(buffer);
+                }
+            }
+            var larger = POOLS[++level].take();
+            System.arraycopy(buffer, 0, larger, 0, length);
+            release(buffer);
+            buffer = larger;
+            buffer[length++] = (byte) next;
+            length += source.readNBytes(buffer, length, buffer.length - length);
+        }
+        return new PayloadSpool(buffer, ByteBuffer.wrap(buffer, 0, length), null);
+    }
+
+    /**
+     * writes the head (the buffer and the next byte) and the rest of the
+     * stream into a temporal file and maps it.
+     */
+    private static PayloadSpool spill(byte[] head, int next, InputStream source) throws IOException {
+        var file = Files.createTempFile("imgext-spool", ".tmp");
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var out = Channels.newOutputStream(channel);
+            out.write(head);
+            out.write(next);
+            source.transferTo(out);
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("the payload is too large to be spooled: " + channel.size() + " bytes");
+            }
+            //the mapping is still valid once the channel is closed.
+            var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PayloadSpool(null, mapped, file);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    /**
+     * returns the buffer to the pool of its size.
+     */
+    private static void release(byte[] buffer) {
+        //each pool is 4 times (2 bits) larger than the previous.
+        POOLS[Integer.numberOfTrailingZeros(buffer.length / MIN_BUFFER) / 2].release(buffer);
+    }
+
+    /**
+     * @return the amount of bytes of the payload.
+     */
+    int length() {
+        return Data.limit();
+    }
+
+    /**
+     * @return true if the payload was spilled to disk.
+     */
+    boolean isSpilled() {
+        return Objects.nonNull(SpillFile);
+    }
+
+    /**
+     * @param index the position of the byte.
+     * @return the byte at the position.
+     */
+    byte get(int index) {
+        return Data.get(index);
+    }
+
+    /**
+     * @return a new stream that reads the payload from the start. no data is
+     * copied.
+     */
+    synchronized InputStream openStream() {
+        if (Closed) {
+            throw new IllegalStateException("the spool is closed");
+        }
+        return new SpoolStream(Data.duplicate());
+    }
+
+    /**
+     * returns the buffer to the pool or removes the temporal file. the streams
+     * provided before must not be used anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (Closed) {
+            return;
+        }
+        Closed = true;
+        if (Objects.nonNull(Buffer)) {
+            release(Buffer);
+            Buffer = null;
+        }
+        if (Objects.nonNull(SpillFile)) {
+            try {
+                Files.deleteIfExists(SpillFile);
+            } catch (IOException ex) {
+                //some systems do not allow to remove a mapped file.
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to remove " + SpillFile, ex);
+                SpillFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * reads a (duplicate of the) buffer.
+     */
+    private static final class SpoolStream extends InputStream {
+
+        private final ByteBuffer Source;
+
+        SpoolStream(ByteBuffer source) {
+            Source = source;
+        }
+
+        @Override
+        public int read() {
+            return Source.hasRemaining() ? Source.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!Source.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, Source.remaining());
+            Source.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            var skipped = (int) Math.max(0, Math.min(n, Source.remaining()));
+            Source.position(Source.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return Source.remaining();
+        }
+    }
+}
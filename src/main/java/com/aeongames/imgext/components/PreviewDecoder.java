@@ -0,0 +1,173 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.error.LoggingHelper;
+import com.aeongames.edi.utils.visual.ImageFormat;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+
+/**
+ * decodes the preview of the recorded images. the images are decoded
+ * subsampled to the size of the panel that shows them. (so a huge image does
+ * not need its full raster just to be shown on a few hundred pixels)
+ * <br>
+ * the previews are decoded on its own thread. so the capture pipeline does not
+ * wait for them. if several previews are requested while one is decoded only
+ * the latest is decoded next.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class PreviewDecoder {
+
+    /**
+     * the size of the preview when the panel is not laid out yet.
+     */
+    private static final int DEFAULT_SIZE = 512;
+
+    private final ProgressObject InfoLink;
+    private final Consumer<BufferedImage> Sink;
+    private final Subsampler Budget;
+    private final AtomicReference<Path> Latest = new AtomicReference<>();
+    private final ExecutorService Worker = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("Capture-Preview").factory());
+    /**
+     * the readers. only used by the worker.
+     */
+    private final EnumMap<ImageFormat, ImageReader> Readers = new EnumMap<>(ImageFormat.class);
+
+    /**
+     * bounds the subsampling to the pixel budget.
+     */
+    @FunctionalInterface
+    interface Subsampler {
+
+        /**
+         * @param width the width of the image.
+         * @param height the height of the image.
+         * @param wanted the subsampling the caller needs.
+         * @return the subsampling to use. (wanted or more)
+         */
+        int subsamplingFor(int width, int height, int wanted);
+    }
+
+    /**
+     * @param infoLink provides the size of the panel.
+     * @param sink receives the decoded previews.
+     * @param budget bounds the subsampling to the pixel budget.
+     */
+    PreviewDecoder(ProgressObject infoLink, Consumer<BufferedImage> sink, Subsampler budget) {
+        InfoLink = Objects.requireNonNull(infoLink, "the ProgressObject cannot be null");
+        Sink = Objects.requireNonNull(sink, "the sink cannot be null");
+        Budget = Objects.requireNonNull(budget, "the budget cannot be null");
+    }
+
+    /**
+     * requests the preview of the file. replaces the previous request if it
+     * was not decoded yet.
+     *
+     * @param file the file that holds the image.
+     */
+    void request(Path file) {
+        if (Objects.nonNull(Latest.getAndSet(Objects.requireNonNull(file)))) {
+            //the worker will take it.
+            return;
+        }
+        try {
+            Worker.execute(this::decodeLatest);
+        } catch (RejectedExecutionException ex) {
+            //shutting down.
+            Latest.set(null);
+        }
+    }
+
+    private void decodeLatest() {
+        var file = Latest.getAndSet(null);
+        if (Objects.isNull(file)) {
+            return;
+        }
+        try {
+            var preview = decode(file);
+            if (Objects.nonNull(preview)) {
+                Sink.accept(preview);
+            }
+        } catch (IOException | RuntimeException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to read the preview of " + file, ex);
+        }
+    }
+
+    /**
+     * decodes the image subsampled to the size of the panel.
+     *
+     * @return the preview or null if the file is not a image we can read.
+     */
+    private BufferedImage decode(Path file) throws IOException {
+        try (var iis = new FileImageInputStream(file.toFile())) {
+            var head = new byte[ImageFormat.SIGNATURE_LENGTH];
+            var format = ImageFormat.sniff(head, Math.max(0, iis.read(head)));
+            iis.seek(0);
+            if (Objects.isNull(format)) {
+                return null;
+            }
+            var reader = Readers.computeIfAbsent(format, ImageFormat::createReader);
+            if (Objects.isNull(reader)) {
+                return null;
+            }
+            try {
+                reader.setInput(iis, true, true);
+                var param = reader.getDefaultReadParam();
+                int width = reader.getWidth(0), height = reader.getHeight(0);
+                var period = Budget.subsamplingFor(width, height, subsamplingFor(width, height));
+                param.setSourceSubsampling(period, period, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.reset();
+            }
+        }
+    }
+
+    /**
+     * the largest subsampling that still fills the panel. (keeping the aspect
+     * ratio, the panel scales the rest)
+     */
+    private int subsamplingFor(int width, int height) {
+        var size = InfoLink.getImageBoundSize();
+        int targetW = DEFAULT_SIZE, targetH = DEFAULT_SIZE;
+        if (Objects.nonNull(size) && size.width > 0 && size.height > 0) {
+            targetW = size.width;
+            targetH = size.height;
+        }
+        return Math.max(1, Math.max(width / targetW, height / targetH));
+    }
+
+    /**
+     * stops the worker. the pending preview (if any) is dropped.
+     */
+    void close() {
+        Latest.set(null);
+        Worker.shutdownNow();
+    }
+}
@@ -12,6 +12,7 @@
  */
 package com.aeongames.imgext.components;
 
+import com.aeongames.edi.utils.common.LogRing;
 import com.aeongames.edi.utils.file.Properties_File;
 import com.aeongames.edi.utils.pojo.BooleanPropertyPojo;
 import com.aeongames.edi.utils.pojo.IntegerPropertyPojo;
@@ -25,11 +26,12 @@ import com.aeongames.edi.utils.visual.pojouilink.BaseBinder.BindSync;
 import com.aeongames.edi.utils.visual.pojouilink.ImagePanelBinding;
 import com.aeongames.edi.utils.visual.pojouilink.JLabelComponentBind;
 import com.aeongames.edi.utils.visual.pojouilink.JSpinnerComponentBind;
-import com.aeongames.edi.utils.visual.pojouilink.JtextComponentAppendUpdateBind;
+import com.aeongames.edi.utils.visual.pojouilink.JtextLogBind;
 import com.aeongames.edi.utils.visual.pojouilink.JtextPathBind;
 import com.aeongames.edi.utils.visual.pojouilink.MCBoolCompEnableBind;
 import com.aeongames.edi.utils.visual.pojouilink.MCBoolEditableBind;
 import com.aeongames.edi.utils.visual.pojouilink.MCBoolProbarIndeterminate;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -49,6 +51,10 @@ public final class ProgressObject {
 
     private final Properties_File Props;
     private final PropertyPojo<String> CurrentStatus = PropertyPojo.newStringPojo();
+    /**
+     * the latest status messages. shown on the log panel.
+     */
+    private final LogRing StatusLog = new LogRing(STATUS_LOG_LINES);
     private final PropertyPojo<String> ImageTypeString = PropertyPojo.newStringPojo();
     private final PropertyPojo<BufferedImage> ImageProperty = new PropertyPojo<>();
     private final PathPropertyPojo SavingFilePath = new PathPropertyPojo();
@@ -56,11 +62,41 @@ public final class ProgressObject {
     private final IntegerPropertyPojo CurrentFileNumber = new IntegerPropertyPojo();
     private final BooleanPropertyPojo CurrentUIEnablement = new BooleanPropertyPojo();
     public final ArrayList<BaseBinder<?, ? extends JComponent>> Bindings;
+    /**
+     * how long (in milliseconds) the setting changes wait before they are
+     * recorded. all the changes made meanwhile are recorded at once.
+     */
+    private static final long SETTINGS_WRITE_DELAY = 500;
+    /**
+     * the amount of status messages kept for the log panel.
+     */
+    private static final int STATUS_LOG_LINES = 2000;
+    /**
+     * the panel that shows the image data (if any) if none the preview does
+     * not need to be decoded.
+     */
+    private volatile ImagePanel ImageBound = null;
 
     public ProgressObject() {
+        this(Path.of("props.xml"));
+    }
+
+    /**
+     * creates a new ProgressObject that reads and records its settings on the
+     * provided file.
+     *
+     * @param settingsFile the settings file.
+     */
+    public ProgressObject(Path settingsFile) {
+        Objects.requireNonNull(settingsFile, "the settings file cannot be null");
         Bindings = new ArrayList<>(10);
-        Props = new Properties_File(Path.of("props.xml"));
-        SavingFilePath.setValue(Props.getProperty("folder"));
+        Props = new Properties_File(settingsFile);
+        //the file number changes with every capture. record the changes on the background.
+        Props.setWriteBehind(SETTINGS_WRITE_DELAY);
+        var folder = Props.getProperty("folder");
+        if (Objects.nonNull(folder)) {
+            SavingFilePath.setValue(folder);
+        }
         SavingFilePath.addPropertyListener((source, newValue) -> {
             Props.setProperty("folder", newValue.toAbsolutePath().toString());
             Props.SaveIfNeeded();
@@ -112,15 +148,47 @@ public final class ProgressObject {
         CurrentFileNumber.plusplus();
     }
 
+    /**
+     * takes the current file number and moves the counter to the next one. in
+     * a single step. so concurrent callers never get the same number.
+     *
+     * @return the reserved file number.
+     */
+    public int reserveFileNumber() {
+        synchronized (CurrentFileNumber) {
+            var reserved = CurrentFileNumber.getValuePrimive(0);
+            CurrentFileNumber.setValue(reserved + 1);
+            return reserved;
+        }
+    }
+
     public void setStatus(String str) {
         statusBarInfo.setValue(str);
     }
 
     public void updateStatus(String message) {
+        StatusLog.append(message);
         CurrentStatus.setValue(message);
     }
     //</editor-fold>
     
+    /**
+     * records the pending setting changes now. (otherwise they are recorded
+     * on the background shortly after they are made)
+     */
+    public void flushSettings() {
+        Props.flush();
+    }
+
+    /**
+     * sets who is told about each write of the settings file.
+     *
+     * @param observer the observer. null to remove it.
+     */
+    public void setSettingsSaveObserver(Properties_File.WriteObserver observer) {
+        Props.setWriteObserver(observer);
+    }
+
     public Integer getFileNumber() {
         return CurrentFileNumber.getValue();
     }
@@ -129,6 +197,36 @@ public final class ProgressObject {
         return SavingFilePath.getValue();
     }
 
+    /**
+     * @return true if there is a panel that shows the image data.
+     */
+    public boolean isImageBound() {
+        return Objects.nonNull(ImageBound);
+    }
+
+    /**
+     * @return the current size of the panel that shows the image data. or
+     * null if there is none.
+     */
+    public Dimension getImageBoundSize() {
+        var panel = ImageBound;
+        return Objects.isNull(panel) ? null : panel.getSize();
+    }
+
+    /**
+     * reads a value from the settings file.
+     *
+     * @param key the setting name
+     * @return the value or null if not set.
+     */
+    public String getSetting(String key) {
+        return Props.getProperty(key);
+    }
+
+    public void registerCurrentStatus(PropertyChangeListener<String, ListenableProperty<String>> Listener) {
+        CurrentStatus.addPropertyListener(Listener);
+    }
+
     public void registerSavingFilePath(PropertyChangeListener<Path, ListenableProperty<Path>> Listener) {
         SavingFilePath.addPropertyListener(Listener);
     }
@@ -140,10 +238,15 @@ public final class ProgressObject {
         return statusBind;
     }
 
-    public JtextComponentAppendUpdateBind bindCurrentStatus(JTextComponent tobind) {
-        var statusBind = new JtextComponentAppendUpdateBind(tobind, CurrentStatus);
-        Bindings.add(statusBind);
-        return statusBind;
+    /**
+     * shows the latest status messages on the component. the component is
+     * updated on the EDT once per frame and holds a bounded amount of them.
+     *
+     * @param tobind the component.
+     * @return the binding.
+     */
+    public JtextLogBind bindCurrentStatus(JTextComponent tobind) {
+        return new JtextLogBind(tobind, StatusLog);
     }
 
     public JtextPathBind bindSavingFile(JTextComponent tobind) {
@@ -201,6 +304,7 @@ public final class ProgressObject {
     public ImagePanelBinding bindImage(ImagePanel PImage) {
         var ImageBind = new ImagePanelBinding(PImage, ImageProperty);
         Bindings.add(ImageBind);
+        ImageBound = PImage;
         return ImageBind;
     }
     //</editor-fold>
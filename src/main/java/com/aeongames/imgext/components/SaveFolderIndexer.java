@@ -0,0 +1,304 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.common.XxHash64;
+import com.aeongames.edi.utils.error.LoggingHelper;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * a background job that walks the save folder and hashes every capture file
+ * (the files that match {@link ImageProcessor#FILEPATTERN}) that was recorded
+ * on previous runs, and records their fingerprints (length and
+ * {@link XxHash64 xxHash}) into the fingerprint {@link SignatureIndex}. so the
+ * processor can detect duplicates against them. the SHA-256 of a file is only
+ * computed later if a capture matches its fingerprint. see
+ * {@link TieredSignatures}
+ * <br>
+ * files are hashed in parallel on a bounded {@link ForkJoinPool} and read
+ * through memory mapped channels. the index is filled as each file completes,
+ * thus captures can continue while the scan runs.
+ * <br>
+ * the scan records a checkpoint on the index (the highest capture number such
+ * as every file with that number or lower is done) so a interrupted scan
+ * resumes where it left and a completed scan only looks at newer files.
+ *
+ * @author Eduardo Vindas
+ */
+public final class SaveFolderIndexer {
+
+    /**
+     * the name of the capture files. a number (at least 4 digits) and a
+     * extension.
+     */
+    private static final Pattern CAPTURE_NAME = Pattern.compile("(\\d{4,18})\\.[A-Za-z0-9]+");
+    /**
+     * the largest chunk of a file we map at once.
+     */
+    private static final long MAP_CHUNK = 64L * 1024 * 1024;
+    /**
+     * how often (in nanos) we report the progress and record the checkpoint.
+     */
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * a capture file to hash.
+     */
+    private record CaptureFile(long number, Path path) {
+
+    }
+
+    private final SignatureIndex Index;
+    private final Consumer<String> Reporter;
+    private final int Parallelism;
+    private final AtomicLong BytesHashed = new AtomicLong();
+    private final AtomicLong FilesHashed = new AtomicLong();
+    private final AtomicLong DuplicatesFound = new AtomicLong();
+    private volatile boolean Cancelled = false;
+    private volatile Thread Worker;
+    private ForkJoinPool Pool;
+    /**
+     * files sorted by number, and which of them are done. used to compute the
+     * checkpoint. guarded by this.
+     */
+    private List<CaptureFile> Pending;
+    private boolean[] Done;
+    private int DonePrefix;
+    private long StartNanos;
+    private long LastReportNanos;
+
+    /**
+     * creates a new indexer.
+     *
+     * @param index the fingerprint index to fill.
+     * @param reporter where to report the progress.
+     * @param parallelism the maximum amount of files to hash at the same time.
+     */
+    public SaveFolderIndexer(SignatureIndex index, Consumer<String> reporter, int parallelism) {
+        Index = Objects.requireNonNull(index, "the index cannot be null");
+        Reporter = Objects.requireNonNull(reporter, "the reporter cannot be null");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("the parallelism must be at least 1");
+        }
+        Parallelism = parallelism;
+    }
+
+    /**
+     * starts the scan on a background thread.
+     */
+    public synchronized void start() {
+        if (Worker != null) {
+            throw new IllegalStateException("the indexer was already started");
+        }
+        Worker = Thread.ofPlatform().daemon().name("SaveFolderIndexer").start(this::scan);
+    }
+
+    /**
+     * request the scan to stop and waits for it to finish. the checkpoint is
+     * recorded up to the files that completed.
+     */
+    public void cancel() {
+        Cancelled = true;
+        var worker = Worker;
+        if (worker != null) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if the scan is still running
+     */
+    public boolean isRunning() {
+        var worker = Worker;
+        return worker != null && worker.isAlive();
+    }
+
+    private void scan() {
+        List<CaptureFile> files;
+        try {
+            files = listCaptures(Index.getScanCheckpoint());
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.SEVERE, "Unable to list the save folder", ex);
+            return;
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+        Reporter.accept(String.format("Indexing %d previous captures on %s", files.size(), Index.getFolder()));
+        synchronized (this) {
+            Pending = files;
+            Done = new boolean[files.size()];
+            DonePrefix = 0;
+            StartNanos = LastReportNanos = System.nanoTime();
+        }
+        Pool = new ForkJoinPool(Parallelism);
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                final int position = i;
+                Pool.execute(() -> hashInto(position));
+            }
+            Pool.shutdown();
+            while (!Pool.awaitTermination(200, TimeUnit.MILLISECONDS)) {
+                if (Cancelled) {
+                    Pool.shutdownNow();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            recordCheckpoint();
+            report(Cancelled ? "Indexing stopped" : "Indexing completed");
+        }
+    }
+
+    /**
+     * list the capture files with a number greater than the checkpoint. sorted
+     * by their number.
+     */
+    private List<CaptureFile> listCaptures(long checkpoint) throws IOException {
+        var files = new ArrayList<CaptureFile>();
+        try (var stream = Files.list(Index.getFolder())) {
+            for (var file : (Iterable<Path>) stream::iterator) {
+                var matcher = CAPTURE_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches() && Files.isRegularFile(file)) {
+                    var number = Long.parseLong(matcher.group(1));
+                    //a checkpoint of 0 might mean none. thus 0000 is always looked at. (it is idempotent)
+                    if (number > checkpoint || number == 0) {
+                        files.add(new CaptureFile(number, file));
+                    }
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(CaptureFile::number));
+        return files;
+    }
+
+    private void hashInto(int position) {
+        if (Cancelled) {
+            return;
+        }
+        var file = Pending.get(position);
+        //the hasher comes from the capture context pool. as the ones of the captures.
+        try (var context = CaptureContext.acquire()) {
+            var fingerprint = hash(file.path(), context.getFingerprint());
+            var recorded = Index.putIfAbsent(fingerprint, file.path().getFileName().toString());
+            if (recorded != null && !recorded.equals(file.path().getFileName().toString())) {
+                DuplicatesFound.incrementAndGet();
+            }
+        } catch (NoSuchFileException ex) {
+            //removed since it was listed. nothing to index.
+        } catch (IOException | IllegalArgumentException | IllegalStateException ex) {
+            //interrupted by a cancel, the index closed or the file unreadable. it is not done, thus the
+            //checkpoint stays before it and the next scan looks at it again.
+            if (!Cancelled && !Thread.currentThread().isInterrupted()) {
+                LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to index " + file.path(), ex);
+            }
+            return;
+        }
+        completed(position);
+    }
+
+    /**
+     * hashes the file by mapping it on chunks.
+     *
+     * @param hasher the hasher to use. it is reset first.
+     * @return the fingerprint key of the file.
+     */
+    private byte[] hash(Path file, XxHash64 hasher) throws IOException {
+        hasher.reset();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                var length = Math.min(MAP_CHUNK, size - position);
+                hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+            BytesHashed.addAndGet(size);
+        }
+        FilesHashed.incrementAndGet();
+        return SignatureIndex.fingerprintKey(hasher.getLength(), hasher.getValue());
+    }
+
+    private synchronized void completed(int position) {
+        Done[position] = true;
+        while (DonePrefix < Done.length && Done[DonePrefix]) {
+            DonePrefix++;
+        }
+        var now = System.nanoTime();
+        if (now - LastReportNanos >= REPORT_INTERVAL) {
+            LastReportNanos = now;
+            recordCheckpoint();
+            report("Indexing");
+        }
+    }
+
+    /**
+     * every file before the done prefix is hashed. thus every capture number
+     * lower than the first pending file is done.
+     */
+    private void recordCheckpoint() {
+        if (Pending == null || DonePrefix == 0) {
+            return;
+        }
+        long checkpoint = DonePrefix == Pending.size()
+                ? Pending.get(DonePrefix - 1).number()
+                : Pending.get(DonePrefix).number() - 1;
+        if (checkpoint > Index.getScanCheckpoint()) {
+            Index.setScanCheckpoint(checkpoint);
+        }
+    }
+
+    private void report(String what) {
+        var seconds = Math.max(System.nanoTime() - StartNanos, 1) / 1e9;
+        var files = FilesHashed.get();
+        var megabytes = BytesHashed.get() / (1024d * 1024d);
+        Reporter.accept(String.format("%s: %d/%d files, %.1f files/sec, %.1f MB/sec, %d duplicates on disk",
+                what, files, Pending.size(), files / seconds, megabytes / seconds, DuplicatesFound.get()));
+    }
+
+    /**
+     * @return the amount of files hashed so far.
+     */
+    public long getFilesHashed() {
+        return FilesHashed.get();
+    }
+
+    /**
+     * @return the amount of bytes hashed so far.
+     */
+    public long getBytesHashed() {
+        return BytesHashed.get();
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import com.aeongames.edi.utils.error.LoggingHelper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * a persistent hash index that maps the raw signature (SHA-256 32 bytes) of a
+ * recorded file into the file name that holds that data. the index lives on
+ * the save folder and is read through a {@link MappedByteBuffer} so opening it
+ * does NOT parse the index. only the header is read. (see below)
+ * <br>
+ * the count on the header is only trusted if the index was closed cleanly.
+ * otherwise (a crash) the slots in use are counted again when opened.
+ * <br>
+ * the same table also backs the fingerprint index (see
+ * {@link #openFingerprints(Path)}) that maps the length and the
+ * {@link com.aeongames.edi.utils.common.XxHash64 xxHash} of the data (16
+ * bytes) into the file name. each kind of index has its own files.
+ * <br>
+ * the index is a open addressing table (linear probing) of fixed size slots.
+ * each slot is 64 bytes. the first bytes are the key and the rest hold the
+ * file name (NUL padded). a slot is considered in use once the first byte of
+ * the name is set. and that byte is the LAST one we write, so a crash mid
+ * insert leaves the slot empty rather than half written.
+ * <br>
+ * the table is kept under half its capacity. when it needs to grow we build a
+ * new generation of the file (double the size) copy the entries, flush it to
+ * disk and only then mark it as ready. the old generation is removed after.
+ * if we crash while growing the old generation is still the valid one.
+ * <br>
+ * the header also keeps the scan checkpoint of the {@link SaveFolderIndexer}
+ * so the checkpoint always describes the index it was recorded into.
+ *
+ * @author Eduardo Vindas
+ */
+public final class SignatureIndex implements Closeable {
+
+    /**
+     * the prefix of the index files on the save folder.
+     */
+    public static final String INDEX_PREFIX = "signatures.";
+    /**
+     * the suffix of the index files on the save folder.
+     */
+    public static final String INDEX_SUFFIX = ".idx";
+    /**
+     * the size of the keys this index handles.
+     */
+    public static final int KEY_SIZE = 32;
+    /**
+     * the prefix of the fingerprint index files on the save folder.
+     */
+    public static final String FINGERPRINT_PREFIX = "fingerprints.";
+    /**
+     * the size of the keys of the fingerprint index. see
+     * {@link #fingerprintKey(long, long)}
+     */
+    public static final int FINGERPRINT_SIZE = 16;
+    private static final int MAGIC = 0x53494458;//SIDX
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    //<editor-fold defaultstate="collapsed" desc="Header Offsets">
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOT = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_READY = 20;
+    private static final int H_SCANNED = 24;
+    private static final int H_CLEAN = 32;
+    //</editor-fold>
+
+    /**
+     * the folder where the index lives.
+     */
+    private final Path Folder;
+    private final String Prefix;
+    private final Pattern IndexName;
+    private final int KeySize;
+    private final int NameSize;
+    /**
+     * guards the mapping. lookups can run in parallel. inserts and growth
+     * require exclusive access.
+     */
+    private final ReentrantReadWriteLock IndexLock = new ReentrantReadWriteLock();
+    private long Generation;
+    private FileChannel Channel;
+    private MappedByteBuffer Map;
+    private int Capacity;
+    private int Count;
+
+    private SignatureIndex(Path folder, String prefix, int keySize) {
+        Folder = folder;
+        Prefix = prefix;
+        IndexName = Pattern.compile(Pattern.quote(prefix) + "(\\d+)" + Pattern.quote(INDEX_SUFFIX));
+        KeySize = keySize;
+        NameSize = SLOT_SIZE - keySize;
+    }
+
+    /**
+     * opens (or creates) the index that lives on the provided folder.
+     *
+     * @param folder the save folder.
+     * @return the index for that folder.
+     * @throws IOException if the index cannot be read or created.
+     */
+    public static SignatureIndex open(Path folder) throws IOException {
+        return open(folder, INDEX_PREFIX, KEY_SIZE);
+    }
+
+    /**
+     * opens (or creates) the fingerprint index that lives on the provided
+     * folder. its keys are {@link #FINGERPRINT_SIZE} bytes.
+     *
+     * @param folder the save folder.
+     * @return the fingerprint index for that folder.
+     * @throws IOException if the index cannot be read or created.
+     */
+    public static SignatureIndex openFingerprints(Path folder) throws IOException {
+        return open(folder, FINGERPRINT_PREFIX, FINGERPRINT_SIZE);
+    }
+
+    private static SignatureIndex open(Path folder, String prefix, int keySize) throws IOException {
+        Objects.requireNonNull(folder, "the folder cannot be null");
+        if (!Files.isDirectory(folder)) {
+            throw new IOException("the index requires a folder: " + folder);
+        }
+        var index = new SignatureIndex(folder, prefix, keySize);
+        index.load();
+        return index;
+    }
+
+    /**
+     * builds the key of the fingerprint index. the hash goes first as the
+     * slot is picked from the first bytes of the key.
+     *
+     * @param length the length of the data.
+     * @param hash the xxHash (64 bits) of the data.
+     * @return the key.
+     */
+    public static byte[] fingerprintKey(long length, long hash) {
+        var key = new byte[FINGERPRINT_SIZE];
+        for (int i = 0; i < Long.BYTES; i++) {
+            key[i] = (byte) (hash >>> (56 - 8 * i));
+            key[Long.BYTES + i] = (byte) (length >>> (56 - 8 * i));
+        }
+        return key;
+    }
+
+    /**
+     * finds the latest ready generation on the folder and maps it. other
+     * generations (old or incomplete) are removed.
+     */
+    private void load() throws IOException {
+        long best = -1;
+        try (var files = Files.list(Folder)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var matcher = IndexName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long gen = Long.parseLong(matcher.group(1));
+                    if (gen > best && isReady(file)) {
+                        best = gen;
+                    }
+                }
+            }
+        }
+        if (best < 0) {
+            Generation = 1;
+            map(create(fileFor(Generation), INITIAL_CAPACITY));
+        } else {
+            Generation = best;
+            map(FileChannel.open(fileFor(Generation), StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+        removeOtherGenerations();
+    }
+
+    private static boolean isReady(Path file) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return false;
+            }
+            var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            return header.getInt(H_MAGIC) == MAGIC
+                    && header.getInt(H_VERSION) == VERSION
+                    && header.getInt(H_SLOT) == SLOT_SIZE
+                    && header.getInt(H_READY) == 1
+                    && channel.size() >= HEADER_SIZE + (long) header.getInt(H_CAPACITY) * SLOT_SIZE;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private Path fileFor(long generation) {
+        return Folder.resolve(Prefix + generation + INDEX_SUFFIX);
+    }
+
+    /**
+     * creates a new empty index file. NOT marked as ready.
+     */
+    private static FileChannel create(Path file, int capacity) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        map.putInt(H_MAGIC, MAGIC);
+        map.putInt(H_VERSION, VERSION);
+        map.putInt(H_SLOT, SLOT_SIZE);
+        map.putInt(H_CAPACITY, capacity);
+        map.putInt(H_COUNT, 0);
+        map.putInt(H_READY, 0);
+        return channel;
+    }
+
+    private void map(FileChannel channel) throws IOException {
+        var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        Capacity = header.getInt(H_CAPACITY);
+        Map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) Capacity * SLOT_SIZE);
+        if (Map.getInt(H_CLEAN) == 1) {
+            Count = Map.getInt(H_COUNT);
+        } else {
+            //the slots are forced as they are written, but the count is not.
+            Count = countSlots();
+            Map.putInt(H_COUNT, Count);
+        }
+        Map.putInt(H_READY, 1);
+        Map.putInt(H_CLEAN, 0);
+        Map.force(0, HEADER_SIZE);
+        Channel = channel;
+    }
+
+    private void removeOtherGenerations() {
+        try (var files = Files.list(Folder)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var matcher = IndexName.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) != Generation) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ex) {
+                        //likely still mapped (windows). we will retry on the next open
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LoggingHelper.getClassLoggerForMe().log(Level.WARNING, "Unable to clean old index generations", ex);
+        }
+    }
+
+    /**
+     * looks for the provided signature on the index.
+     *
+     * @param key the raw signature. MUST be {@link #KEY_SIZE} bytes (or
+     * {@link #FINGERPRINT_SIZE} for the fingerprint index)
+     * @return the file name (relative to the save folder) that holds the data
+     * or null if the signature is not recorded.
+     */
+    public String lookup(byte[] key) {
+        checkKey(key);
+        IndexLock.readLock().lock();
+        try {
+            var slot = find(key);
+            return slot < 0 ? null : readName(slot);
+        } finally {
+            IndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * records the signature if it is not yet recorded.
+     *
+     * @param key the raw signature. MUST be {@link #KEY_SIZE} bytes (or
+     * {@link #FINGERPRINT_SIZE} for the fingerprint index)
+     * @param fileName the file name (relative to the save folder)
+     * @return null if the signature was recorded, otherwise the file name that
+     * was already recorded for that signature.
+     * @throws IOException if the index needs to grow and fails to do so.
+     */
+    public String putIfAbsent(byte[] key, String fileName) throws IOException {
+        checkKey(key);
+        var name = Objects.requireNonNull(fileName, "the file name cannot be null").getBytes(StandardCharsets.UTF_8);
+        if (name.length == 0 || name.length > NameSize) {
+            throw new IllegalArgumentException("the file name does not fit on the index: " + fileName);
+        }
+        IndexLock.writeLock().lock();
+        try {
+            var slot = find(key);
+            if (slot >= 0) {
+                return readName(slot);
+            }
+            if ((long) (Count + 1) * 2 > Capacity) {
+                grow();
+            }
+            write(Map, emptySlotFor(Map, Capacity, key), key, name);
+            Map.putInt(H_COUNT, ++Count);
+            return null;
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the amount of signatures recorded.
+     */
+    public int size() {
+        IndexLock.readLock().lock();
+        try {
+            return Count;
+        } finally {
+            IndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the highest capture number that the folder scan has recorded on
+     * this index. (every capture file with a number equal or lower was
+     * already hashed into the index) or 0 if none.
+     */
+    public long getScanCheckpoint() {
+        IndexLock.readLock().lock();
+        try {
+            if (Map == null) {
+                return 0;
+            }
+            return Map.getLong(H_SCANNED);
+        } finally {
+            IndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * records the scan checkpoint on the index header.
+     *
+     * @param fileNumber the highest capture number that was completely
+     * scanned.
+     */
+    public void setScanCheckpoint(long fileNumber) {
+        IndexLock.writeLock().lock();
+        try {
+            if (Map == null) {
+                return;
+            }
+            Map.putLong(H_SCANNED, fileNumber);
+            Map.force(0, HEADER_SIZE);
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the folder this index belongs to.
+     */
+    public Path getFolder() {
+        return Folder;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IndexLock.writeLock().lock();
+        try {
+            if (Channel != null) {
+                Map.putInt(H_COUNT, Count);
+                Map.force();
+                Map.putInt(H_CLEAN, 1);
+                Map.force(0, HEADER_SIZE);
+                Channel.close();
+                Channel = null;
+                Map = null;
+            }
+        } finally {
+            IndexLock.writeLock().unlock();
+        }
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="Table Internals">
+    private void checkKey(byte[] key) {
+        Objects.requireNonNull(key, "the key cannot be null");
+        if (key.length != KeySize) {
+            throw new IllegalArgumentException("the key must be " + KeySize + " bytes");
+        }
+    }
+
+    private static int startSlot(byte[] key, int capacity) {
+        //the keys start with the output of a hash. the bits are already well distributed
+        long head = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            head = (head << 8) | (key[i] & 0xFF);
+        }
+        return (int) (head & (capacity - 1));
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private boolean inUse(MappedByteBuffer map, int slot) {
+        return map.get(offsetOf(slot) + KeySize) != 0;
+    }
+
+    private boolean keyMatches(MappedByteBuffer map, int slot, byte[] key) {
+        var offset = offsetOf(slot);
+        for (int i = 0; i < KeySize; i++) {
+            if (map.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the slot that holds the key or -1 if not present
+     */
+    private int find(byte[] key) {
+        if (Map == null) {
+            throw new IllegalStateException("the index is closed");
+        }
+        int slot = startSlot(key, Capacity);
+        for (int probes = 0; probes < Capacity; probes++) {
+            if (!inUse(Map, slot)) {
+                return -1;
+            }
+            if (keyMatches(Map, slot, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & (Capacity - 1);
+        }
+        return -1;
+    }
+
+    private int emptySlotFor(MappedByteBuffer map, int capacity, byte[] key) throws IOException {
+        int slot = startSlot(key, capacity);
+        for (int probes = 0; probes < capacity; probes++) {
+            if (!inUse(map, slot)) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+        throw new IOException("the index is full: " + Folder);
+    }
+
+    /**
+     * @return the amount of slots in use on the current map.
+     */
+    private int countSlots() {
+        int used = 0;
+        for (int slot = 0; slot < Capacity; slot++) {
+            if (inUse(Map, slot)) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    private String readName(int slot) {
+        var offset = offsetOf(slot) + KeySize;
+        int length = 0;
+        while (length < NameSize && Map.get(offset + length) != 0) {
+            length++;
+        }
+        byte[] name = new byte[length];
+        Map.get(offset, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * writes the slot. the first byte of the name is written last and thus
+     * marks the slot as in use only once it is complete.
+     */
+    private void write(MappedByteBuffer map, int slot, byte[] key, byte[] name) {
+        var offset = offsetOf(slot);
+        map.put(offset, key);
+        for (int i = 1; i < NameSize; i++) {
+            map.put(offset + KeySize + i, i < name.length ? name[i] : 0);
+        }
+        map.put(offset + KeySize, name[0]);
+        map.force(offset, SLOT_SIZE);
+    }
+
+    /**
+     * builds the next generation with double the capacity. the new generation
+     * is only marked ready after all the entries are copied and flushed.
+     */
+    private void grow() throws IOException {
+        var newCapacity = Capacity << 1;
+        var nextGen = Generation + 1;
+        var newChannel = create(fileFor(nextGen), newCapacity);
+        var newMap = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        byte[] key = new byte[KeySize];
+        byte[] name = new byte[NameSize];
+        for (int slot = 0; slot < Capacity; slot++) {
+            if (!inUse(Map, slot)) {
+                continue;
+            }
+            Map.get(offsetOf(slot), key);
+            Map.get(offsetOf(slot) + KeySize, name);
+            var target = emptySlotFor(newMap, newCapacity, key);
+            newMap.put(offsetOf(target), key);
+            newMap.put(offsetOf(target) + KeySize, name);
+        }
+        newMap.putInt(H_COUNT, Count);
+        newMap.putLong(H_SCANNED, Map.getLong(H_SCANNED));
+        newMap.force();
+        newMap.putInt(H_READY, 1);
+        newMap.force();
+        var oldChannel = Channel;
+        Generation = nextGen;
+        Channel = newChannel;
+        Map = newMap;
+        Capacity = newCapacity;
+        oldChannel.close();
+        removeOtherGenerations();
+    }
+    //</editor-fold>
+}
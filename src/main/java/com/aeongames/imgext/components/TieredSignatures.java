@@ -0,0 +1,180 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * the duplicate check of the save folder. done on two tiers:
+ * <ol>
+ * <li>the fingerprint: the length and the xxHash of the data. computed while
+ * the data is decoded (cheap) and checked against the fingerprint index. if
+ * there is no file with the same fingerprint the data is new.</li>
+ * <li>the signature: the SHA-256 of the data. only computed when the
+ * fingerprint matches a recorded file. to confirm that file holds the same
+ * data.</li>
+ * </ol>
+ * the files recorded from a temporal file are NOT signed when recorded. their
+ * signature is computed (from the recorded file) the first time a capture
+ * matches their fingerprint and then kept on the signature index.
+ * <br>
+ * the fingerprint index is also the one filled by the
+ * {@link SaveFolderIndexer} with the files from previous runs.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+final class TieredSignatures implements Closeable {
+
+    private final SignatureIndex Fingerprints;
+    private final SignatureIndex Signatures;
+    private final DedupeCounters Counters;
+
+    private TieredSignatures(SignatureIndex fingerprints, SignatureIndex signatures, DedupeCounters counters) {
+        Fingerprints = fingerprints;
+        Signatures = signatures;
+        Counters = counters;
+    }
+
+    /**
+     * opens (or creates) the indexes that live on the provided folder.
+     *
+     * @param folder the save folder.
+     * @param counters where to account the hits and misses.
+     * @return the duplicate check for the folder.
+     * @throws IOException if the indexes cannot be read or created.
+     */
+    static TieredSignatures open(Path folder, DedupeCounters counters) throws IOException {
+        Objects.requireNonNull(counters, "the counters cannot be null");
+        var fingerprints = SignatureIndex.openFingerprints(folder);
+        try {
+            return new TieredSignatures(fingerprints, SignatureIndex.open(folder), counters);
+        } catch (IOException | RuntimeException ex) {
+            fingerprints.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return the index the folder scan fills.
+     */
+    SignatureIndex getFingerprints() {
+        return Fingerprints;
+    }
+
+    Path getFolder() {
+        return Fingerprints.getFolder();
+    }
+
+    /**
+     * @return the amount of files recorded.
+     */
+    int size() {
+        return Fingerprints.size();
+    }
+
+    /**
+     * checks if the data of the capture is already recorded.
+     *
+     * @param capture the capture.
+     * @param fingerprintsComplete false while the folder scan is running. if
+     * so the files that are only on the signature index (recorded by previous
+     * versions) are checked as well.
+     * @param digest the SHA-256 digester to use if a signature is needed.
+     * @return the name of the file (relative to the folder) that holds the
+     * same data or null if the data is not recorded.
+     * @throws IOException if unable to compute a signature.
+     */
+    String findRecorded(CaptureSignature capture, boolean fingerprintsComplete, MessageDigest digest) throws IOException {
+        var candidate = Fingerprints.lookup(capture.getFingerprint());
+        Counters.fingerprint(Objects.nonNull(candidate));
+        if (Objects.isNull(candidate)) {
+            //if the signature is already known the check is free. (and finds the images re-encoded by previous versions)
+            var checkSignatures = capture.hasSignature() || (!fingerprintsComplete && Signatures.size() > 0);
+            if (!checkSignatures) {
+                return null;
+            }
+        }
+        var recorded = Objects.isNull(candidate)
+                ? Signatures.lookup(capture.getSignature(Counters, digest))
+                : confirm(capture, candidate, digest);
+        Counters.signature(Objects.nonNull(recorded));
+        return recorded;
+    }
+
+    /**
+     * records the file that holds the data of the capture.
+     *
+     * @param capture the capture. (its source should be the recorded file)
+     * @param fileName the name of the file (relative to the folder)
+     * @param digest the SHA-256 digester to use if a signature is needed.
+     * @return null if recorded. otherwise the name of a file that recorded
+     * the same data meanwhile. (thus the file is a duplicate)
+     * @throws IOException if the indexes fail to grow or a signature cannot be
+     * computed.
+     */
+    String record(CaptureSignature capture, String fileName, MessageDigest digest) throws IOException {
+        var previous = Fingerprints.putIfAbsent(capture.getFingerprint(), fileName);
+        if (Objects.nonNull(previous) && !previous.equals(fileName)) {
+            var recorded = confirm(capture, previous, digest);
+            if (Objects.nonNull(recorded)) {
+                return recorded;
+            }
+        }
+        if (!capture.hasSignature()) {
+            Counters.notSigned(capture.getLength());
+            return null;
+        }
+        previous = Signatures.putIfAbsent(capture.getSignature(Counters, digest), fileName);
+        return Objects.nonNull(previous) && !previous.equals(fileName) ? previous : null;
+    }
+
+    /**
+     * the capture matches the fingerprint of the candidate. check their
+     * signatures. the candidate might not be signed yet. if so we sign the
+     * file and record it.
+     *
+     * @return the file that holds the same data or null if none.
+     */
+    private String confirm(CaptureSignature capture, String candidate, MessageDigest digest) throws IOException {
+        var signature = capture.getSignature(Counters, digest);
+        var recorded = Signatures.lookup(signature);
+        if (Objects.nonNull(recorded)) {
+            return recorded;
+        }
+        var file = getFolder().resolve(candidate);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        var fileSignature = CaptureSignature.signatureOf(file, digest);
+        Counters.signed(Files.size(file));
+        Signatures.putIfAbsent(fileSignature, candidate);
+        return Arrays.equals(signature, fileSignature) ? candidate : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            Fingerprints.close();
+        } finally {
+            Signatures.close();
+        }
+    }
+}
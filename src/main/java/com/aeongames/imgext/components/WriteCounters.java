@@ -0,0 +1,98 @@
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package com.aeongames.imgext.components;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the work of the {@link AtomicFileWriter}: the files waiting to be
+ * committed, the commits and how many batches (rounds of syncs) they took,
+ * and how long a file waited from the moment it was queued until it was in
+ * place.
+ * <br>
+ * this class is Sync.
+ *
+ * @author Eduardo Vindas
+ */
+public final class WriteCounters {
+
+    private final AtomicLong Queued = new AtomicLong();
+    private final AtomicLong Committed = new AtomicLong();
+    private final AtomicLong Failed = new AtomicLong();
+    private final AtomicLong Batches = new AtomicLong();
+    private final AtomicLong LatencyNanos = new AtomicLong();
+    private final AtomicLong MaxLatencyNanos = new AtomicLong();
+
+    void queued() {
+        Queued.incrementAndGet();
+    }
+
+    /**
+     * a file was committed (or failed) after waiting the provided time.
+     */
+    void completed(boolean success, long nanos) {
+        Queued.decrementAndGet();
+        (success ? Committed : Failed).incrementAndGet();
+        LatencyNanos.addAndGet(nanos);
+        MaxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void batch() {
+        Batches.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of files waiting to be committed.
+     */
+    public long getQueueDepth() {
+        return Queued.get();
+    }
+
+    public long getCommitted() {
+        return Committed.get();
+    }
+
+    public long getFailed() {
+        return Failed.get();
+    }
+
+    /**
+     * @return the amount of batches. the files of a batch are synced at the
+     * same time and share the sync of the folder. (less than the commits if
+     * they were grouped)
+     */
+    public long getBatches() {
+        return Batches.get();
+    }
+
+    /**
+     * @return the average time (in milliseconds) from queued to in place.
+     */
+    public double getAverageLatencyMillis() {
+        var count = getCommitted() + getFailed();
+        return count == 0 ? 0 : LatencyNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return the maximum time (in milliseconds) from queued to in place.
+     */
+    public double getMaxLatencyMillis() {
+        return MaxLatencyNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d committed in %d batches, %d failed, %d queued, latency %.2f ms avg / %.2f ms max",
+                getCommitted(), getBatches(), getFailed(), getQueueDepth(), getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
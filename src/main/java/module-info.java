@@ -21,6 +21,11 @@ module com.aeongames.imgext {
     requires transitive java.datatransfer;
     requires transitive java.logging;
     requires transitive java.management;
+    requires jdk.jfr;
     requires transitive com.aeongames.edi.utils;
+    //optional. the Base64 decoder uses it when the app runs with --add-modules jdk.incubator.vector
+    requires static jdk.incubator.vector;
     exports com.aeongames.imgext.app;
+    //so JMX can read the capture metrics. see CaptureMetricsMXBean
+    exports com.aeongames.imgext.components to java.management;
 }
@@ -0,0 +1,191 @@
+package com.aeongames.edi.tests;
+
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+import com.aeongames.edi.utils.common.Base64DecodingInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * compares {@link Base64DecodingInputStream} against the JDK decoder. the pom
+ * runs it twice: with the SIMD kernel (--add-modules jdk.incubator.vector) and
+ * with {@code -Dcom.aeongames.base64.scalar=true}
+ *
+ * @author cartman
+ */
+public class TestBase64DecodingInputStream {
+
+    /**
+     * the characters the decoder reads per block.
+     */
+    private static final int BLOCK_CHARS = 64 * 1024;
+    /**
+     * the bytes a block decodes into.
+     */
+    private static final int BLOCK_BYTES = BLOCK_CHARS / 4 * 3;
+
+    /**
+     * a stream that returns a few bytes per read. so the reads are not
+     * aligned with the quantums nor the vectors.
+     */
+    private static final class TricklingInputStream extends FilterInputStream {
+
+        private int Next = 0;
+
+        TricklingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Next = Next % 7 + 1;
+            return super.read(b, off, Math.min(len, Next));
+        }
+    }
+
+    private static byte[] payload(int length) {
+        var payload = new byte[length];
+        new Random(length).nextBytes(payload);
+        return payload;
+    }
+
+    private static byte[] decode(InputStream source) throws IOException {
+        try (var stream = new Base64DecodingInputStream(source)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private static void assertDecodes(byte[] text, String message) throws IOException {
+        var expected = Base64.getDecoder().decode(text);
+        Assertions.assertArrayEquals(expected, decode(new ByteArrayInputStream(text)), message);
+        Assertions.assertArrayEquals(expected, decode(new TricklingInputStream(new ByteArrayInputStream(text))),
+                message + " (unaligned reads)");
+    }
+
+    private static void assertRejects(byte[] text, String message) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Base64.getDecoder().decode(text),
+                "the JDK decoder was expected to reject " + message);
+        Assertions.assertThrows(IOException.class, () -> decode(new ByteArrayInputStream(text)), message);
+        Assertions.assertThrows(IOException.class, () -> decode(new TricklingInputStream(new ByteArrayInputStream(text))),
+                message + " (unaligned reads)");
+    }
+
+    private static byte[] withCharacter(byte[] text, int position, char character) {
+        var copy = text.clone();
+        copy[position] = (byte) character;
+        return copy;
+    }
+
+    @Test
+    @Tag("base64")
+    public void testDecoderPath() {
+        System.out.println("Running testDecoderPath. SIMD: " + Base64DecodingInputStream.isVectorized());
+        if (Boolean.getBoolean("com.aeongames.base64.scalar")) {
+            Assertions.assertFalse(Base64DecodingInputStream.isVectorized(), "the SIMD kernel must be disabled");
+        }
+    }
+
+    @Test
+    @Tag("base64")
+    public void testPadding() throws IOException {
+        System.out.println("Running testPadding");
+        //short ones end on the scalar decoder, the long ones after a few vectors.
+        for (var length : new int[]{0, 1, 2, 3, 4, 5, 3000, 3001, 3002}) {
+            var text = Base64.getEncoder().encode(payload(length));
+            assertDecodes(text, length + " bytes padded");
+        }
+        Assertions.assertArrayEquals(new byte[]{'a'}, decode(new ByteArrayInputStream("YQ==".getBytes(StandardCharsets.US_ASCII))));
+        Assertions.assertArrayEquals(new byte[]{'a', 'b'}, decode(new ByteArrayInputStream("YWI=".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    @Tag("base64")
+    public void testMissingPadding() throws IOException {
+        System.out.println("Running testMissingPadding");
+        for (var length : new int[]{1, 2, 3001, 3002, BLOCK_BYTES + 1, BLOCK_BYTES + 2}) {
+            var text = Base64.getEncoder().withoutPadding().encode(payload(length));
+            assertDecodes(text, length + " bytes without padding");
+        }
+    }
+
+    @Test
+    @Tag("base64")
+    public void testInvalidEndings() {
+        System.out.println("Running testInvalidEndings");
+        var text = new String(Base64.getEncoder().encode(payload(3000)), StandardCharsets.US_ASCII);
+        assertRejects("Q".getBytes(StandardCharsets.US_ASCII), "a single character");
+        assertRejects((text + "Q").getBytes(StandardCharsets.US_ASCII), "a single character on the last quantum");
+        assertRejects((text + "QQ=").getBytes(StandardCharsets.US_ASCII), "incomplete padding");
+        assertRejects((text + "Q===").getBytes(StandardCharsets.US_ASCII), "padding after a single character");
+    }
+
+    @Test
+    @Tag("base64")
+    public void testIllegalCharacters() {
+        System.out.println("Running testIllegalCharacters");
+        var text = Base64.getEncoder().encode(payload(3 * BLOCK_CHARS / 2));
+        //mid first vector, mid a later vector, mid block and mid the second block.
+        for (var position : new int[]{5, 37, 40001, BLOCK_CHARS + 21}) {
+            assertRejects(withCharacter(text, position, '*'), "'*' at " + position);
+            assertRejects(withCharacter(text, position, '-'), "'-' at " + position);
+            assertRejects(withCharacter(text, position, (char) 0xC3), "0xC3 at " + position);
+        }
+        //right before and after the end of the first block.
+        assertRejects(withCharacter(text, BLOCK_CHARS - 1, '*'), "'*' at the end of the block");
+        assertRejects(withCharacter(text, BLOCK_CHARS, '*'), "'*' at the start of the block");
+    }
+
+    @Test
+    @Tag("base64")
+    public void testBlockAndLaneBoundaries() throws IOException {
+        System.out.println("Running testBlockAndLaneBoundaries");
+        //every tail for vectors of up to 64 lanes.
+        for (int length = 0; length <= 400; length++) {
+            var payload = payload(length);
+            assertDecodes(Base64.getEncoder().encode(payload), length + " bytes");
+            assertDecodes(Base64.getEncoder().withoutPadding().encode(payload), length + " bytes without padding");
+        }
+        //payloads that end around the blocks.
+        for (var block : new int[]{BLOCK_BYTES, 2 * BLOCK_BYTES}) {
+            for (int length = block - 50; length <= block + 50; length++) {
+                assertDecodes(Base64.getEncoder().encode(payload(length)), length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    @Tag("base64")
+    public void testSingleByteReadsAndSkip() throws IOException {
+        System.out.println("Running testSingleByteReadsAndSkip");
+        var payload = payload(BLOCK_BYTES + 7);
+        var text = Base64.getEncoder().encode(payload);
+        try (var stream = new Base64DecodingInputStream(new ByteArrayInputStream(text))) {
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(payload[i] & 0xFF, stream.read());
+            }
+            Assertions.assertEquals(BLOCK_BYTES - 10, stream.skip(BLOCK_BYTES - 10));
+            for (int i = BLOCK_BYTES; i < payload.length; i++) {
+                Assertions.assertEquals(payload[i] & 0xFF, stream.read());
+            }
+            Assertions.assertEquals(-1, stream.read());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.aeongames.edi.tests;
+
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+import com.aeongames.edi.utils.common.DataUriScanner;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * checks the payloads {@link DataUriScanner} provides. specially the ones
+ * wrapped on lines.
+ *
+ * @author cartman
+ */
+public class TestDataUriScanner {
+
+    private static String encoded(int length) {
+        var payload = new byte[length];
+        new Random(length).nextBytes(payload);
+        return Base64.getEncoder().encodeToString(payload);
+    }
+
+    private static String wrap(String text, String lineBreak) {
+        var wrapped = new StringBuilder();
+        for (int i = 0; i < text.length(); i += 76) {
+            if (i > 0) {
+                wrapped.append(lineBreak);
+            }
+            wrapped.append(text, i, Math.min(text.length(), i + 76));
+        }
+        return wrapped.toString();
+    }
+
+    /**
+     * scans the text and checks it has a single URI with the expected
+     * payload.
+     */
+    private static void assertPayload(String text, String expected) throws IOException {
+        var scanner = new DataUriScanner(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+        var uri = scanner.next();
+        Assertions.assertNotNull(uri, "the URI was not found");
+        Assertions.assertEquals("png", uri.getImageType());
+        var payload = new String(uri.getPayload().readAllBytes(), StandardCharsets.US_ASCII);
+        Assertions.assertEquals(expected, payload);
+        Assertions.assertNull(scanner.next(), "there is a single URI on the text");
+    }
+
+    @Test
+    public void testPlainPayload() throws IOException {
+        System.out.println("Running testPlainPayload");
+        var data = encoded(3000);
+        assertPayload("<img src=\"data:image/png;base64," + data + "\">", data);
+    }
+
+    @Test
+    public void testWrappedPayload() throws IOException {
+        System.out.println("Running testWrappedPayload");
+        //3078 bytes. 4104 characters on 55 lines.
+        var data = encoded(3078);
+        assertPayload("<img src=\"data:image/png;base64," + wrap(data, "\r\n") + "\">", data);
+        assertPayload("<img src=\"data:image/png;base64," + wrap(data, "\n") + "\">", data);
+        assertPayload("![image](data:image/png;base64," + wrap(data, "\r\n") + "\r\n)", data);
+        //the padding wrapped on a line of its own.
+        var padded = encoded(3001);
+        assertPayload("url(data:image/png;base64," + padded.substring(0, padded.length() - 1) + "\r\n=)", padded);
+    }
+
+    @Test
+    public void testJsonEscapedPayload() throws IOException {
+        System.out.println("Running testJsonEscapedPayload");
+        var data = encoded(3078);
+        var escaped = wrap(data, "\\r\\n").replace("/", "\\/");
+        assertPayload("{\"image\":\"data:image/png;base64," + escaped + "\"}", data);
+        assertPayload("{\"image\":\"data:image/png;base64," + wrap(data, "\\n") + "\"}", data);
+    }
+}
@@ -0,0 +1,134 @@
+package com.aeongames.edi.tests;
+
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+import com.aeongames.edi.utils.common.XxHash64;
+import com.aeongames.imgext.components.SignatureIndex;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author cartman
+ */
+public class TestSignatureIndex {
+
+    @TempDir
+    Path folder;
+
+    private static byte[] signatureOf(int value) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(Integer.toString(value).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @Tag("signatureIndex")
+    public void testInsertLookupAndGrowth() throws IOException, NoSuchAlgorithmException {
+        System.out.println("Running testInsertLookupAndGrowth");
+        //enough entries to force the index to grow a few times.
+        final int entries = 20000;
+        try (var index = SignatureIndex.open(folder)) {
+            for (int i = 0; i < entries; i++) {
+                Assertions.assertNull(index.putIfAbsent(signatureOf(i), String.format("%04d.png", i)),
+                        "the signature was not expected to be recorded");
+            }
+            Assertions.assertEquals(entries, index.size());
+            Assertions.assertEquals("0005.png", index.putIfAbsent(signatureOf(5), "other.png"),
+                    "a recorded signature must not be replaced");
+        }
+        //reopen. the data must survive and only one generation must remain.
+        try (var index = SignatureIndex.open(folder)) {
+            Assertions.assertEquals(entries, index.size());
+            Assertions.assertEquals("19999.png", index.lookup(signatureOf(19999)));
+            Assertions.assertNull(index.lookup(signatureOf(entries + 1)));
+        }
+        try (var files = Files.list(folder)) {
+            Assertions.assertEquals(1, files.filter(f -> f.getFileName().toString().endsWith(SignatureIndex.INDEX_SUFFIX)).count());
+        }
+    }
+
+    @Test
+    @Tag("signatureIndex")
+    public void testFingerprintIndexLivesApart() throws IOException, NoSuchAlgorithmException {
+        System.out.println("Running testFingerprintIndexLivesApart");
+        var data = "fingerprint".getBytes(StandardCharsets.US_ASCII);
+        var hasher = new XxHash64();
+        hasher.update(data, 0, 5);
+        hasher.update(data, 5, data.length - 5);
+        Assertions.assertEquals(XxHash64.hash(data, 0, data.length), hasher.getValue(),
+                "the streamed hash must match the one shot hash");
+        var key = SignatureIndex.fingerprintKey(hasher.getLength(), hasher.getValue());
+        try (var fingerprints = SignatureIndex.openFingerprints(folder); var signatures = SignatureIndex.open(folder)) {
+            Assertions.assertNull(fingerprints.putIfAbsent(key, "0001.png"));
+            Assertions.assertNull(signatures.putIfAbsent(signatureOf(1), "0002.png"));
+            Assertions.assertEquals(1, fingerprints.size());
+            Assertions.assertEquals(1, signatures.size());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> fingerprints.lookup(signatureOf(1)),
+                    "the fingerprint index only takes fingerprint keys");
+        }
+        try (var fingerprints = SignatureIndex.openFingerprints(folder)) {
+            Assertions.assertEquals("0001.png", fingerprints.lookup(key));
+            Assertions.assertNull(fingerprints.lookup(SignatureIndex.fingerprintKey(data.length + 1, hasher.getValue())));
+        }
+    }
+
+    @Test
+    @Tag("signatureIndex")
+    public void testIncompleteGenerationIsIgnored() throws IOException, NoSuchAlgorithmException {
+        System.out.println("Running testIncompleteGenerationIsIgnored");
+        try (var index = SignatureIndex.open(folder)) {
+            index.putIfAbsent(signatureOf(1), "0001.jpg");
+        }
+        //simulate a crash while growing: a newer generation that was never marked as ready.
+        Files.write(folder.resolve(SignatureIndex.INDEX_PREFIX + "99" + SignatureIndex.INDEX_SUFFIX), new byte[16]);
+        try (var index = SignatureIndex.open(folder)) {
+            Assertions.assertEquals("0001.jpg", index.lookup(signatureOf(1)));
+        }
+    }
+
+    @Test
+    @Tag("signatureIndex")
+    public void testCountIsRebuiltAfterACrash() throws IOException, NoSuchAlgorithmException {
+        System.out.println("Running testCountIsRebuiltAfterACrash");
+        final int entries = 100;
+        try (var index = SignatureIndex.open(folder)) {
+            for (int i = 0; i < entries; i++) {
+                index.putIfAbsent(signatureOf(i), String.format("%04d.png", i));
+            }
+        }
+        //simulate a crash: the slots made it to disk but the header count (16) and the clean flag (32) did not.
+        Path file;
+        try (var files = Files.list(folder)) {
+            file = files.filter(f -> f.getFileName().toString().startsWith(SignatureIndex.INDEX_PREFIX)).findFirst().orElseThrow();
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 16);
+            channel.write(ByteBuffer.allocate(Integer.BYTES), 32);
+        }
+        var index = SignatureIndex.open(folder);
+        Assertions.assertEquals(entries, index.size(), "the count must be rebuilt from the slots");
+        Assertions.assertEquals("0042.png", index.lookup(signatureOf(42)));
+        index.close();
+        Assertions.assertEquals(0, index.getScanCheckpoint(), "a closed index has no checkpoint");
+    }
+}
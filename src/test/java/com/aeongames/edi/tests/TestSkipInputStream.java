@@ -0,0 +1,89 @@
+package com.aeongames.edi.tests;
+
+/*
+ *  Copyright © 2025 Eduardo Vindas Cordoba. All rights reserved.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+import com.aeongames.edi.utils.common.SkipInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * checks {@link SkipInputStream} narrows the text of each charset. the
+ * throughput is measured by the SkipInputStreamBench (JMH) benchmark.
+ *
+ * @author cartman
+ */
+public class TestSkipInputStream {
+
+    private static final Charset[] CHARSETS = {
+        StandardCharsets.UTF_8,
+        StandardCharsets.UTF_16LE,
+        StandardCharsets.UTF_16BE,
+        Charset.forName("UTF-32"),
+        Charset.forName("UTF-32LE")
+    };
+
+    /**
+     * a stream that returns a few bytes per read. so the reads are not
+     * aligned with the characters.
+     */
+    private static final class TricklingInputStream extends FilterInputStream {
+
+        private int Next = 0;
+
+        TricklingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Next = Next % 7 + 1;
+            return super.read(b, off, Math.min(len, Next));
+        }
+    }
+
+    private static byte[] narrow(InputStream stream) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (stream) {
+            stream.transferTo(out);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @Tag("skipInputStream")
+    public void testNarrowingUnalignedReads() throws IOException {
+        System.out.println("Running testNarrowingUnalignedReads");
+        var ascii = Base64.getEncoder().encode("a payload that is not aligned with anything.".repeat(500).getBytes(StandardCharsets.US_ASCII));
+        var text = new String(ascii, StandardCharsets.US_ASCII);
+        for (var charset : CHARSETS) {
+            var encoded = text.getBytes(charset);
+            var narrowed = narrow(new SkipInputStream(new TricklingInputStream(new ByteArrayInputStream(encoded)), charset));
+            //the BOM (if any) is narrowed as a extra byte at the start.
+            var bom = narrowed.length - ascii.length;
+            Assertions.assertArrayEquals(ascii, Arrays.copyOfRange(narrowed, bom, narrowed.length), charset.name());
+            var skipping = new SkipInputStream(new TricklingInputStream(new ByteArrayInputStream(encoded)), charset);
+            Assertions.assertEquals(bom + 100, skipping.skip(bom + 100), charset.name());
+            Assertions.assertEquals(ascii[100], skipping.read(), charset.name());
+        }
+    }
+}